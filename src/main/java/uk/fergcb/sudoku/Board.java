@@ -1,13 +1,17 @@
 package uk.fergcb.sudoku;
 
+import uk.fergcb.sudoku.constraints.ConstraintModel;
 import uk.fergcb.sudoku.util.Base36;
 import uk.fergcb.sudoku.util.Color;
 import uk.fergcb.sudoku.util.Highlight;
 import uk.fergcb.sudoku.util.Position;
+import uk.fergcb.sudoku.util.Zobrist;
 import uk.fergcb.sudoku.validation.ValidationResult;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -15,15 +19,27 @@ import java.util.stream.Stream;
 
 import static java.util.function.Function.identity;
 
+/**
+ * A sudoku grid, where 0 marks an empty cell, together with the {@link ConstraintModel} whose rules it follows
+ * (the classic rules unless another model is given).
+ * <p>
+ * Boards are treated as immutable: the grid passed to {@link #from(int[][])} and returned by {@link #getGrid()} must
+ * not be modified afterwards. This lets each board carry a {@link Zobrist} hash, computed once on creation and updated
+ * in O(1) by {@link #with(int, Position)}, which makes boards cheap to use as keys.
+ */
 public class Board {
     private final int size;
     private final int boxSize;
     private final int[][] grid;
+    private final ConstraintModel model;
+    private final long zobristHash;
 
-    private Board(int[][] grid) {
+    private Board(int[][] grid, ConstraintModel model, long zobristHash) {
         this.size = grid.length;
         this.boxSize = (int) Math.sqrt(size);
         this.grid = grid;
+        this.model = model;
+        this.zobristHash = zobristHash;
     }
 
     public int getSize() {
@@ -38,7 +54,35 @@ public class Board {
         return grid;
     }
 
+    public ConstraintModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return the 64-bit Zobrist hash of the grid
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
     public static Board from(int[][] values) {
+        checkShape(values);
+        return new Board(values, ConstraintModel.classic(values.length), Zobrist.hash(values));
+    }
+
+    /**
+     * @param values the grid of values, where 0 is an empty cell
+     * @param model  the rules the board follows
+     * @return the board
+     */
+    public static Board from(int[][] values, ConstraintModel model) {
+        checkShape(values);
+        if (model.getSize() != values.length)
+            throw new IllegalArgumentException("Constraint model must be the same size as the board.");
+        return new Board(values, model, Zobrist.hash(values));
+    }
+
+    private static void checkShape(int[][] values) {
         final var size = values.length;
         if (Math.sqrt(size) % 1 != 0)
             throw new IllegalArgumentException("Board size must be a square number.");
@@ -46,8 +90,6 @@ public class Board {
             if (row.length != size)
                 throw new IllegalArgumentException("Board must be square.");
         }
-
-        return new Board(values);
     }
 
     public Board with(int value, Position pos) {
@@ -56,7 +98,21 @@ public class Board {
             System.arraycopy(grid[r], 0, newGrid[r], 0, size);
         }
         newGrid[pos.row()][pos.col()] = value;
-        return new Board(newGrid);
+        final var cell = pos.row() * size + pos.col();
+        return new Board(newGrid, model, Zobrist.update(zobristHash, size, cell, grid[pos.row()][pos.col()], value));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Board other)) return false;
+        return size == other.size && zobristHash == other.zobristHash && Arrays.deepEquals(grid, other.grid)
+                && model.equals(other.model);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(zobristHash);
     }
 
     public static Set<Position> getCellPositions(int size) {
@@ -124,13 +180,50 @@ public class Board {
         return Board.getCellRange(size);
     }
 
+    /**
+     * @param cell an empty cell
+     * @return the values which could be placed in the cell without breaking any of the board's rules
+     */
     public Set<Integer> getValidValues(Position cell) {
-        final var values = getCellRange();
-        final var influencedValues = getInfluencedCells(cell, size, boxSize)
-                .stream()
-                .map(pos -> grid[pos.row()][pos.col()])
-                .collect(Collectors.toSet());
-        values.removeAll(influencedValues);
+        final var index = cell.row() * size + cell.col();
+        final var peerRows = model.getPeerRows();
+        final var peerCols = model.getPeerCols();
+        final var peerOffsets = model.getPeerOffsets();
+        var used = 0L;
+        for (int i = peerOffsets[index]; i < peerOffsets[index + 1]; i++) {
+            final var value = grid[peerRows[i]][peerCols[i]];
+            if (value != 0) used |= 1L << (value - 1);
+        }
+        var candidates = ~used & (size == 64 ? -1L : (1L << size) - 1);
+
+        // Cages are limited to grids small enough for int masks
+        if (model.hasSums()) {
+            final var units = model.getCellUnits();
+            final var unitOffsets = model.getCellUnitOffsets();
+            for (int i = unitOffsets[index]; i < unitOffsets[index + 1]; i++) {
+                final var unit = units[i];
+                if (model.getUnitSum(unit) == 0) continue;
+                var remaining = model.getUnitSum(unit);
+                var empty = 0;
+                var unused = (int) ((1L << size) - 1);
+                for (int j = model.getUnitOffsets()[unit]; j < model.getUnitOffsets()[unit + 1]; j++) {
+                    final var unitCell = model.getUnitCells()[j];
+                    final var value = grid[unitCell / size][unitCell % size];
+                    if (value == 0) {
+                        empty++;
+                    } else {
+                        remaining -= value;
+                        unused &= ~(1 << (value - 1));
+                    }
+                }
+                candidates = ConstraintModel.sumCandidates((int) candidates, remaining, empty, unused);
+            }
+        }
+
+        final var values = new HashSet<Integer>();
+        for (int value = 1; value <= size; value++) {
+            if ((candidates & (1L << (value - 1))) != 0) values.add(value);
+        }
         return values;
     }
 
@@ -151,7 +244,10 @@ public class Board {
                                             new Position(0, error.culprits().getFirst().col()));
                                     case BOX -> new Highlight(Highlight.HighlightType.BOX, Color.RED,
                                             new Position(error.culprits().getFirst().row(), error.culprits().getFirst().col()));
-                                }),
+                                    // Irregular regions can't be shaded as a whole, so only their culprits are shown
+                                    case DIAGONAL, JIGSAW, CAGE -> null;
+                                })
+                                .filter(Objects::nonNull),
                         errors
                                 .stream()
                                 .flatMap(err -> err.culprits().stream())
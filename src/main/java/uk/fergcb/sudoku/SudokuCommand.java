@@ -1,11 +1,45 @@
 package uk.fergcb.sudoku;
 
+import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
+import uk.fergcb.sudoku.bench.LoadDriver;
+import uk.fergcb.sudoku.bench.LoadProfile;
 import uk.fergcb.sudoku.generation.BasicGenerator;
+import uk.fergcb.sudoku.generation.Difficulty;
+import uk.fergcb.sudoku.generation.Generator;
+import uk.fergcb.sudoku.generation.Puzzle;
+import uk.fergcb.sudoku.generation.TargetedGenerator;
+import uk.fergcb.sudoku.io.PuzzleExporter;
+import uk.fergcb.sudoku.io.PuzzleFormat;
+import uk.fergcb.sudoku.io.PuzzleImporter;
+import uk.fergcb.sudoku.metrics.Instrumentation;
+import uk.fergcb.sudoku.metrics.InstrumentedGenerator;
+import uk.fergcb.sudoku.metrics.InstrumentedSolver;
+import uk.fergcb.sudoku.metrics.InstrumentedValidator;
+import uk.fergcb.sudoku.metrics.JmxExporter;
+import uk.fergcb.sudoku.metrics.MetricsRegistry;
+import uk.fergcb.sudoku.metrics.MetricsServer;
+import uk.fergcb.sudoku.solving.BacktrackingSolver;
+import uk.fergcb.sudoku.solving.BatchSolver;
+import uk.fergcb.sudoku.solving.ForkJoinSolver;
+import uk.fergcb.sudoku.solving.PortfolioSolver;
+import uk.fergcb.sudoku.solving.Solver;
+import uk.fergcb.sudoku.validation.ThreadPoolValidator;
+import uk.fergcb.sudoku.validation.Validator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 @Command(name = "sudoku", mixinStandardHelpOptions = true,
         description = "Generates, validates and solves sudoku puzzles.")
@@ -14,6 +48,12 @@ public class SudokuCommand {
     @Spec
     CommandSpec spec;
 
+    public static void main(String[] args) {
+        final var commandLine = new CommandLine(new SudokuCommand())
+                .setCaseInsensitiveEnumValuesAllowed(true);
+        System.exit(commandLine.execute(args));
+    }
+
     @Command(name = "generate")
     public int generate(
             @Option(names = {"-s", "--size"}, defaultValue = "9",
@@ -21,12 +61,178 @@ public class SudokuCommand {
             @Option(names = {"-c", "--coverage"}, defaultValue = "30",
                     description = "percentage of cells to remain visible (0-100)") int coverage,
             @Option(names = {"-S", "--include-solution"},
-                    description = "print solution alongside puzzle") boolean includeSolution
+                    description = "print solution alongside puzzle") boolean includeSolution,
+            @Option(names = {"-d", "--difficulty"},
+                    description = "generate a unique puzzle of this difficulty instead of a fixed coverage: "
+                            + "${COMPLETION-CANDIDATES}") Difficulty difficulty
     ) {
+        checkCoverage(coverage);
+        checkSize(size);
+        if (difficulty != null && spec.commandLine().getParseResult().subcommand().hasMatchedOption("--coverage")) {
+            throw new ParameterException(spec.commandLine(), "Options '--coverage' and '--difficulty' can't be used " +
+                    "together: a difficulty decides how many cells remain visible.");
+        }
+        final Generator generator;
+        if (difficulty == null) {
+            generator = new BasicGenerator(size, coverage / 100D);
+        } else {
+            try {
+                generator = new TargetedGenerator(size, difficulty);
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException(spec.commandLine(), String.format("Invalid value '%s' for option " +
+                        "'--difficulty': %s", difficulty, e.getMessage()));
+            }
+        }
+        final Puzzle puzzle;
+        try {
+            puzzle = generator.generate();
+        } catch (IllegalStateException e) {
+            // The band is reachable, but no puzzle in it turned up in time
+            System.err.println("Generation failed: " + e.getMessage());
+            return 1;
+        }
+
+        System.out.println("=== Puzzle: ===");
+        System.out.println(puzzle.puzzle().toPrettyString());
+
+        if (includeSolution) {
+            System.out.println("\n\n=== Solution: ===");
+            System.out.println(puzzle.solution().toPrettyString());
+        }
+
+        return 0;
+    }
+
+    @Command(name = "bench", description = "Runs a load test against a solver, generator or validator.")
+    public int bench(
+            @Option(names = {"-t", "--target"}, defaultValue = "SOLVER",
+                    description = "what to load: ${COMPLETION-CANDIDATES}") BenchTarget target,
+            @Option(names = {"--solver"}, defaultValue = "BACKTRACKING",
+                    description = "solver implementation for the solver target: ${COMPLETION-CANDIDATES}") SolverKind solverKind,
+            @Option(names = {"-s", "--size"}, defaultValue = "9",
+                    description = "side length of the grids") int size,
+            @Option(names = {"-c", "--coverage"}, defaultValue = "30",
+                    description = "percentage of cells visible in generated puzzles (0-100)") int coverage,
+            @Option(names = {"-p", "--puzzles"}, defaultValue = "100",
+                    description = "number of distinct puzzles to cycle through") int puzzleCount,
+            @Option(names = {"-m", "--mode"}, defaultValue = "CLOSED",
+                    description = "load model: ${COMPLETION-CANDIDATES}") LoadProfile.Mode mode,
+            @Option(names = {"-n", "--concurrency"}, defaultValue = "1",
+                    description = "number of worker threads") int concurrency,
+            @Option(names = {"-r", "--rate"}, defaultValue = "100",
+                    description = "operations per second, for open-loop runs") double rate,
+            @Option(names = {"-w", "--warmup"}, defaultValue = "2",
+                    description = "seconds to run before measuring") int warmup,
+            @Option(names = {"-d", "--duration"}, defaultValue = "10",
+                    description = "seconds to measure for") int duration,
+            @Option(names = {"--json"},
+                    description = "print the report as JSON") boolean json,
+            @Option(names = {"--metrics-port"},
+                    description = "serve live metrics at http://<host>:<port>/metrics and over JMX while running") Integer metricsPort,
+            @Option(names = {"--metrics-host"},
+                    description = "address to serve metrics on (default: loopback only)") String metricsHost
+    ) throws InterruptedException, IOException {
+        checkCoverage(coverage);
+        checkSize(size);
+        if (puzzleCount < 1) {
+            throw new ParameterException(spec.commandLine(), String.format("Invalid value '%d' for option '--puzzles': " +
+                    "value must be at least 1.", puzzleCount));
+        }
+        final LoadProfile profile;
+        try {
+            profile = new LoadProfile(mode, concurrency, rate, Duration.ofSeconds(warmup), Duration.ofSeconds(duration));
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+
+        final var metricsAddress = metricsPort == null ? null : metricsAddress(metricsHost, metricsPort);
+        final var metrics = metricsPort == null ? null : MetricsRegistry.global();
+        final Generator generator = metrics == null ? new BasicGenerator(size, coverage / 100D)
+                : new InstrumentedGenerator(new BasicGenerator(size, coverage / 100D), metrics);
+        final LoadDriver.Operation operation;
+        final String description;
+        if (target == BenchTarget.GENERATOR) {
+            operation = i -> generator.generate();
+            description = String.format("generate %dx%d, %d%% coverage", size, size, coverage);
+        } else {
+            final var puzzles = new ArrayList<Board>();
+            final var solutions = new ArrayList<Board>();
+            for (int i = 0; i < puzzleCount; i++) {
+                final var puzzle = generator.generate();
+                puzzles.add(puzzle.puzzle());
+                solutions.add(puzzle.solution());
+            }
+            if (target == BenchTarget.SOLVER) {
+                final var solver = metrics == null ? solverKind.create()
+                        : new InstrumentedSolver(solverKind.createMonitored(metrics), metrics);
+                operation = i -> solver.solve(puzzles.get((int) (i % puzzles.size())));
+                description = String.format("solve %dx%d with %s, %d%% coverage",
+                        size, size, solverKind.name().toLowerCase(), coverage);
+            } else {
+                final Validator validator = metrics == null ? new ThreadPoolValidator()
+                        : new InstrumentedValidator(new ThreadPoolValidator(), metrics);
+                operation = i -> validator.validate(solutions.get((int) (i % solutions.size())));
+                description = String.format("validate %dx%d", size, size);
+            }
+        }
+
+        if (metrics == null) {
+            final var report = LoadDriver.run(description, profile, operation);
+            System.out.println(json ? report.toJson() : report.toText());
+            return 0;
+        }
+        JmxExporter.install(metrics);
+        try (var server = MetricsServer.start(metrics, metricsAddress)) {
+            System.err.printf("Serving metrics at http://%s:%d/metrics%n",
+                    server.getAddress().getHostString(), server.getAddress().getPort());
+            final var report = LoadDriver.run(description, profile, operation);
+            System.out.println(json ? report.toJson() : report.toText());
+        }
+        return 0;
+    }
+
+    @Command(name = "convert", description = {"Converts a puzzle collection between formats, validating every puzzle.",
+            "Exits with status 1 if any puzzle was rejected."})
+    public int convert(
+            @Parameters(index = "0", description = "collection to read") Path input,
+            @Parameters(index = "1", description = "collection to write") Path output,
+            @Option(names = {"-f", "--from"},
+                    description = "input format (default: from the file extension): ${COMPLETION-CANDIDATES}") PuzzleFormat from,
+            @Option(names = {"-t", "--to"},
+                    description = "output format (default: from the file extension): ${COMPLETION-CANDIDATES}") PuzzleFormat to
+    ) throws IOException {
+        final var importer = new PuzzleImporter(from == null ? PuzzleFormat.fromFileName(input) : from);
+        final var outputFormat = to == null ? PuzzleFormat.fromFileName(output) : to;
+        try (var exporter = new PuzzleExporter(Files.newBufferedWriter(output), outputFormat)) {
+            final var summary = importer.importFrom(input, exporter::write,
+                    error -> System.err.printf("line %d: %s%n", error.line(), error.message()));
+            System.err.printf("%d puzzles converted, %d rejected.%n", summary.imported(), summary.rejected());
+            return summary.rejected() > 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * @return the given host, or only the loopback interface if none is given, so metrics aren't exposed by default
+     */
+    private InetSocketAddress metricsAddress(String host, int port) {
+        final var address = host == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            throw new ParameterException(spec.commandLine(), String.format("Invalid value '%s' for option " +
+                    "'--metrics-host': unknown host.", host));
+        }
+        return address;
+    }
+
+    private void checkCoverage(int coverage) {
         if (coverage < 0 || coverage > 100) {
             throw new ParameterException(spec.commandLine(), String.format("Invalid value '%d' for option '--coverage': " +
                     "value must be a percentage between 0-100 (inclusive).", coverage));
         }
+    }
+
+    private void checkSize(int size) {
         if (Math.sqrt(size) % 1 != 0) {
             throw new ParameterException(spec.commandLine(), String.format("Invalid value '%d' for option '--size': " +
                     "value must be a square number.", size));
@@ -35,17 +241,39 @@ public class SudokuCommand {
             throw new ParameterException(spec.commandLine(), String.format("Invalid value '%d' for option '--size': " +
                     "value must be in range 4-25 (inclusive).", size));
         }
-        final var generator = new BasicGenerator(size, coverage / 100D);
-        final var puzzle = generator.generate();
+    }
 
-        System.out.println("=== Puzzle: ===");
-        System.out.println(puzzle.puzzle().toPrettyString());
+    enum BenchTarget {SOLVER, GENERATOR, VALIDATOR}
 
-        if (includeSolution) {
-            System.out.println("\n\n=== Solution: ===");
-            System.out.println(puzzle.solution().toPrettyString());
+    enum SolverKind {
+        FORKJOIN, BACKTRACKING, PORTFOLIO, BATCH;
+
+        Solver create() {
+            return switch (this) {
+                case FORKJOIN -> new ForkJoinSolver(true);
+                case BACKTRACKING -> new BacktrackingSolver();
+                case PORTFOLIO -> new PortfolioSolver(true);
+                case BATCH -> new BatchSolver();
+            };
         }
 
-        return 0;
+        /**
+         * Like {@link #create()}, but any pool the solver forks work onto is long-lived and watched by the registry.
+         */
+        Solver createMonitored(MetricsRegistry metrics) {
+            return switch (this) {
+                case FORKJOIN -> {
+                    final var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    Instrumentation.monitor(metrics, "sudoku_solver_pool", pool);
+                    yield new ForkJoinSolver(true, pool);
+                }
+                case BATCH -> {
+                    final var solver = new BatchSolver();
+                    Instrumentation.monitor(metrics, "sudoku_solver_pool", solver.getPool());
+                    yield solver;
+                }
+                default -> create();
+            };
+        }
     }
 }
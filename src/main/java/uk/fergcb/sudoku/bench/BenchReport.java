@@ -0,0 +1,86 @@
+package uk.fergcb.sudoku.bench;
+
+import java.util.Locale;
+
+/**
+ * The outcome of a {@link LoadDriver} run.
+ *
+ * @param target          a description of what was benchmarked
+ * @param profile         how load was applied
+ * @param operations      operations completed during the measured period
+ * @param errors          operations which threw during the measured period
+ * @param elapsedNanos    length of the measured period
+ * @param latency         latency of each operation (for open-loop runs, measured from its intended start time)
+ * @param gcCount         garbage collections during the measured period
+ * @param gcMillis        time spent in garbage collection during the measured period
+ * @param allocatedBytes  bytes allocated by the worker threads during the measured period, or -1 if unsupported
+ */
+public record BenchReport(String target, LoadProfile profile, long operations, long errors, long elapsedNanos,
+                          LatencyHistogram latency, long gcCount, long gcMillis, long allocatedBytes) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+    }
+
+    public long getAllocatedBytesPerOperation() {
+        return allocatedBytes < 0 || operations == 0 ? -1 : allocatedBytes / operations;
+    }
+
+    public String toText() {
+        final var sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "=== %s ===%n", target));
+        sb.append(String.format(Locale.ROOT, "mode %s, concurrency %d%s, measured %.1fs%n",
+                profile.mode().name().toLowerCase(Locale.ROOT), profile.concurrency(),
+                profile.mode() == LoadProfile.Mode.OPEN ? String.format(Locale.ROOT, ", rate %.1f/s", profile.rate()) : "",
+                elapsedNanos / 1e9));
+        sb.append(String.format(Locale.ROOT, "operations %d (%d errors), throughput %.1f ops/s%n",
+                operations, errors, getThroughput()));
+        sb.append("latency:");
+        sb.append(String.format(Locale.ROOT, " min %s", formatNanos(latency.getMin())));
+        sb.append(String.format(Locale.ROOT, " mean %s", formatNanos((long) latency.getMean())));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            sb.append(String.format(Locale.ROOT, " %s %s", PERCENTILE_NAMES[i],
+                    formatNanos(latency.getValueAtPercentile(PERCENTILES[i]))));
+        }
+        sb.append(String.format(Locale.ROOT, " max %s%n", formatNanos(latency.getMax())));
+        sb.append(String.format(Locale.ROOT, "gc %d collections, %d ms%n", gcCount, gcMillis));
+        final var perOp = getAllocatedBytesPerOperation();
+        sb.append(perOp < 0 ? "allocation n/a" : String.format(Locale.ROOT, "allocation %d bytes/op", perOp));
+        sb.append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    public String toJson() {
+        final var sb = new StringBuilder("{");
+        sb.append(String.format(Locale.ROOT, "\"target\":\"%s\",", target.replace("\\", "\\\\").replace("\"", "\\\"")));
+        sb.append(String.format(Locale.ROOT, "\"mode\":\"%s\",", profile.mode().name().toLowerCase(Locale.ROOT)));
+        sb.append(String.format(Locale.ROOT, "\"concurrency\":%d,", profile.concurrency()));
+        if (profile.mode() == LoadProfile.Mode.OPEN)
+            sb.append(String.format(Locale.ROOT, "\"rate\":%.3f,", profile.rate()));
+        sb.append(String.format(Locale.ROOT, "\"elapsedNanos\":%d,", elapsedNanos));
+        sb.append(String.format(Locale.ROOT, "\"operations\":%d,", operations));
+        sb.append(String.format(Locale.ROOT, "\"errors\":%d,", errors));
+        sb.append(String.format(Locale.ROOT, "\"throughput\":%.3f,", getThroughput()));
+        sb.append("\"latencyNanos\":{");
+        sb.append(String.format(Locale.ROOT, "\"min\":%d,\"mean\":%.1f,", latency.getMin(), latency.getMean()));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            sb.append(String.format(Locale.ROOT, "\"%s\":%d,", PERCENTILE_NAMES[i],
+                    latency.getValueAtPercentile(PERCENTILES[i])));
+        }
+        sb.append(String.format(Locale.ROOT, "\"max\":%d},", latency.getMax()));
+        sb.append(String.format(Locale.ROOT, "\"gcCount\":%d,\"gcMillis\":%d,", gcCount, gcMillis));
+        sb.append(String.format(Locale.ROOT, "\"allocatedBytesPerOperation\":%d", getAllocatedBytesPerOperation()));
+        sb.append("}");
+        return sb.toString();
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,150 @@
+package uk.fergcb.sudoku.bench;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.util.Position;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A hand-specialised classic solver, kept only as the baseline for {@link ConstraintModelBenchmark}.
+ * <p>
+ * It runs exactly the same search as {@link uk.fergcb.sudoku.solving.BacktrackingSolver} with the minimum remaining
+ * values heuristic (the same cell choices, tie-breaks and value order for the same seed), but finds each cell's
+ * candidates from row, column and box masks indexed by arithmetic rather than from a constraint model's tables.
+ * It also provides the equivalent baseline for {@link Board#getValidValues(Position)}, which {@code ForkJoinSolver}
+ * relies on.
+ */
+class ClassicReferenceSolver {
+
+    private final int size;
+    private final int boxSize;
+    private final int fullMask;
+    private final int[] cells;
+    private final int[] rowMasks;
+    private final int[] colMasks;
+    private final int[] boxMasks;
+    private final Random rand;
+    private int emptyCount;
+    private boolean solved = false;
+
+    private ClassicReferenceSolver(Board board, long seed) {
+        this.size = board.getSize();
+        this.boxSize = board.getBoxSize();
+        this.fullMask = (1 << size) - 1;
+        this.cells = new int[size * size];
+        this.rowMasks = new int[size];
+        this.colMasks = new int[size];
+        this.boxMasks = new int[size];
+        this.rand = new Random(seed);
+        this.emptyCount = size * size;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (board.getGrid()[r][c] != 0) place(r * size + c, board.getGrid()[r][c]);
+            }
+        }
+    }
+
+    /**
+     * @return the first solution found, or null if there is none
+     */
+    static Board solve(Board board, long seed) {
+        final var solver = new ClassicReferenceSolver(board, seed);
+        solver.search();
+        if (!solver.solved) return null;
+        final var grid = new int[solver.size][solver.size];
+        for (int r = 0; r < solver.size; r++) {
+            System.arraycopy(solver.cells, r * solver.size, grid[r], 0, solver.size);
+        }
+        return Board.from(grid);
+    }
+
+    /**
+     * The baseline for {@link Board#getValidValues(Position)}: the same result, from a direct scan of the cell's row,
+     * column and box.
+     */
+    static Set<Integer> validValues(Board board, Position cell) {
+        final var grid = board.getGrid();
+        final var size = board.getSize();
+        final var boxSize = board.getBoxSize();
+        final var boxRow = cell.row() / boxSize * boxSize;
+        final var boxCol = cell.col() / boxSize * boxSize;
+        var used = 0L;
+        for (int i = 0; i < size; i++) {
+            if (i != cell.col() && grid[cell.row()][i] != 0) used |= 1L << (grid[cell.row()][i] - 1);
+            if (i != cell.row() && grid[i][cell.col()] != 0) used |= 1L << (grid[i][cell.col()] - 1);
+            final var r = boxRow + i / boxSize;
+            final var c = boxCol + i % boxSize;
+            if ((r != cell.row() || c != cell.col()) && grid[r][c] != 0) used |= 1L << (grid[r][c] - 1);
+        }
+        final var values = new HashSet<Integer>();
+        for (int value = 1; value <= size; value++) {
+            if ((used & (1L << (value - 1))) == 0) values.add(value);
+        }
+        return values;
+    }
+
+    private void search() {
+        final var cell = mostConstrained();
+        if (cell < 0) {
+            solved = true;
+            return;
+        }
+        final var candidates = candidates(cell);
+        final var offset = rand.nextInt(size);
+        for (int i = 0; i < size && !solved; i++) {
+            final var value = (offset + i) % size + 1;
+            if ((candidates & (1 << (value - 1))) == 0) continue;
+            place(cell, value);
+            search();
+            if (!solved) clear(cell);
+        }
+    }
+
+    private int mostConstrained() {
+        if (emptyCount == 0) return -1;
+        var best = -1;
+        var bestCount = Integer.MAX_VALUE;
+        var ties = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) continue;
+            final var count = Integer.bitCount(candidates(cell));
+            if (count == 0) return cell;
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+                ties = 1;
+            } else if (count == bestCount && rand.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    private int box(int cell) {
+        return (cell / size / boxSize) * boxSize + cell % size / boxSize;
+    }
+
+    private int candidates(int cell) {
+        return ~(rowMasks[cell / size] | colMasks[cell % size] | boxMasks[box(cell)]) & fullMask;
+    }
+
+    private void place(int cell, int value) {
+        final var bit = 1 << (value - 1);
+        cells[cell] = value;
+        rowMasks[cell / size] |= bit;
+        colMasks[cell % size] |= bit;
+        boxMasks[box(cell)] |= bit;
+        emptyCount--;
+    }
+
+    private void clear(int cell) {
+        final var bit = 1 << (cells[cell] - 1);
+        cells[cell] = 0;
+        rowMasks[cell / size] &= ~bit;
+        colMasks[cell % size] &= ~bit;
+        boxMasks[box(cell)] &= ~bit;
+        emptyCount++;
+    }
+}
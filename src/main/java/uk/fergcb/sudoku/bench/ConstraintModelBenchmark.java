@@ -0,0 +1,178 @@
+package uk.fergcb.sudoku.bench;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.generation.SymmetryGridFactory;
+import uk.fergcb.sudoku.solving.BacktrackingSolver;
+import uk.fergcb.sudoku.solving.CellHeuristic;
+import uk.fergcb.sudoku.solving.UniquenessChecker;
+import uk.fergcb.sudoku.util.Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks that classic 9x9 puzzles are handled through the general {@link uk.fergcb.sudoku.constraints.ConstraintModel}
+ * tables at least as fast as by code hand-specialised for rows, columns and boxes, on both paths the model rewrote:
+ * the {@code CandidateGrid} search behind {@link BacktrackingSolver}, and {@link Board#getValidValues(Position)}
+ * behind {@code ForkJoinSolver}.
+ * <p>
+ * Usage: {@code ConstraintModelBenchmark [puzzles] [rounds]}. Each round times both implementations over the same set
+ * of minimal (unique, dug-out) puzzles, alternating which goes first, and gives one model / specialised ratio. The
+ * verdict uses the median ratio over the rounds, against a noise band centred on 1.0 whose width is estimated from
+ * the spread of the ratios. Exits with status 1 if the model is slower by more than the noise, or 2 if it is slower
+ * but the rounds vary by more than {@value #MAX_NOISE_PERCENT}%, too much to tell a regression from noise.
+ */
+public class ConstraintModelBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int VALID_VALUES_REPEATS = 10;
+    private static final double MIN_NOISE_PERCENT = 0.25;
+    private static final double MAX_NOISE_PERCENT = 3;
+
+    public static void main(String[] args) {
+        final var puzzleCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final var rounds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+
+        final var puzzles = minimalPuzzles(puzzleCount, new Random(0));
+        final var emptyCells = puzzles.stream().map(puzzle -> List.copyOf(puzzle.getEmptyCells())).toList();
+        checkValidValuesAgree(puzzles, emptyCells);
+        final var search = new double[rounds];
+        final var validValues = new double[rounds];
+
+        for (int round = -WARMUP_ROUNDS; round < rounds; round++) {
+            // Interleave at the level of single puzzles, alternating the order, so drift affects both sides alike
+            final var searchTotals = new double[2];
+            final var validValuesTotals = new double[2];
+            for (int i = 0; i < puzzles.size(); i++) {
+                final var puzzle = puzzles.get(i);
+                final var seed = i;
+                final var cells = emptyCells.get(i);
+                final var modelFirst = (i + round) % 2 == 0;
+                time(useModel -> timeSearch(puzzle, seed, useModel), modelFirst, searchTotals);
+                time(useModel -> timeValidValues(puzzle, cells, useModel), modelFirst, validValuesTotals);
+            }
+            if (round < 0) continue;
+            search[round] = searchTotals[0] / searchTotals[1];
+            validValues[round] = validValuesTotals[0] / validValuesTotals[1];
+        }
+
+        System.out.printf(Locale.ROOT, "%d puzzles x %d rounds%n", puzzles.size(), rounds);
+        final var verdicts = new int[]{verdict("search", search), verdict("getValidValues", validValues)};
+        final var worst = Math.max(verdicts[0], verdicts[1]);
+        System.out.println(switch (worst) {
+            case 0 -> "OK";
+            case 1 -> "FAIL: the constraint model is slower than the specialised path.";
+            default -> "INCONCLUSIVE: too much noise between rounds; rerun on a quieter machine or with more rounds.";
+        });
+        if (worst != 0) System.exit(worst);
+    }
+
+    /**
+     * @return 0 if the model is no slower than the specialised path, 1 if it is, 2 if the ratios are too noisy to say
+     */
+    private static int verdict(String name, double[] ratios) {
+        final var median = median(ratios);
+        final var deviations = new double[ratios.length];
+        for (int i = 0; i < ratios.length; i++) deviations[i] = Math.abs(ratios[i] - median);
+        // A robust estimate of one round's standard deviation, scaled to a ~95% interval for the median
+        final var sigma = 1.4826 * median(deviations);
+        final var noise = Math.max(MIN_NOISE_PERCENT / 100, 2 * 1.2533 * sigma / Math.sqrt(ratios.length));
+        System.out.printf(Locale.ROOT, "%-15s model / specialised = %.3f (median), noise band 1.000 +/- %.3f%n",
+                name, median, noise);
+        if (median <= 1) return 0;
+        // Slower, but perhaps only by noise: too wide a band can't rule out a real regression
+        if (noise > MAX_NOISE_PERCENT / 100) return 2;
+        return median > 1 + noise ? 1 : 0;
+    }
+
+    /**
+     * Time the model and the specialised path one after the other, adding to their totals.
+     *
+     * @param totals the model's total, then the specialised path's
+     */
+    private static void time(Timing timing, boolean modelFirst, double[] totals) {
+        final var first = timing.nanos(modelFirst);
+        final var second = timing.nanos(!modelFirst);
+        totals[0] += modelFirst ? first : second;
+        totals[1] += modelFirst ? second : first;
+    }
+
+    @FunctionalInterface
+    private interface Timing {
+        double nanos(boolean useModel);
+    }
+
+    private static double median(double[] values) {
+        final var sorted = values.clone();
+        Arrays.sort(sorted);
+        final var mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+
+    /**
+     * @return nanoseconds taken to solve the puzzle
+     */
+    private static double timeSearch(Board puzzle, long seed, boolean useModel) {
+        final var start = System.nanoTime();
+        final var solution = useModel
+                ? new BacktrackingSolver(CellHeuristic.MINIMUM_REMAINING_VALUES, seed, true).solve(puzzle).getSolution()
+                : ClassicReferenceSolver.solve(puzzle, seed);
+        final var elapsed = System.nanoTime() - start;
+        if (solution == null)
+            throw new IllegalStateException("Benchmark puzzle has no solution.");
+        return elapsed;
+    }
+
+    /**
+     * @return nanoseconds taken to find the valid values of every empty cell of the puzzle, a few times over
+     */
+    private static double timeValidValues(Board puzzle, List<Position> cells, boolean useModel) {
+        var found = 0L;
+        final var start = System.nanoTime();
+        for (int repeat = 0; repeat < VALID_VALUES_REPEATS; repeat++) {
+            for (var cell : cells) {
+                found += useModel
+                        ? puzzle.getValidValues(cell).size()
+                        : ClassicReferenceSolver.validValues(puzzle, cell).size();
+            }
+        }
+        final var elapsed = System.nanoTime() - start;
+        if (found == 0)
+            throw new IllegalStateException("Benchmark puzzle has no candidates.");
+        return elapsed;
+    }
+
+    private static void checkValidValuesAgree(List<Board> puzzles, List<List<Position>> emptyCells) {
+        for (int i = 0; i < puzzles.size(); i++) {
+            final var puzzle = puzzles.get(i);
+            for (var cell : emptyCells.get(i)) {
+                if (!puzzle.getValidValues(cell).equals(ClassicReferenceSolver.validValues(puzzle, cell)))
+                    throw new IllegalStateException("Model and specialised valid values disagree at " + cell);
+            }
+        }
+    }
+
+    /**
+     * Dig cells out of solved grids for as long as the puzzle stays unique.
+     */
+    private static List<Board> minimalPuzzles(int count, Random rand) {
+        final var grids = new SymmetryGridFactory(9);
+        final var checker = new UniquenessChecker();
+        final var puzzles = new ArrayList<Board>();
+        final var cells = new ArrayList<>(Board.getCellPositions(9));
+        for (int i = 0; i < count; i++) {
+            var puzzle = grids.next();
+            Collections.shuffle(cells, rand);
+            for (var cell : cells) {
+                final var dug = puzzle.with(0, cell);
+                if (checker.isUnique(dug)) puzzle = dug;
+            }
+            puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+}
@@ -0,0 +1,134 @@
+package uk.fergcb.sudoku.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives an operation with a fixed number of worker threads for a fixed time, and measures how it holds up.
+ * <p>
+ * In closed-loop mode each worker starts its next operation as soon as the previous one finishes, which measures
+ * peak throughput. In open-loop mode operations are scheduled at a fixed arrival rate and each latency is measured
+ * from when the operation <em>should</em> have started, so time spent queued behind slow operations is counted
+ * rather than hidden (avoiding coordinated omission).
+ */
+public class LoadDriver {
+
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @param iteration a sequence number, unique across workers, e.g. for picking an input
+         */
+        void run(long iteration) throws Exception;
+    }
+
+    private LoadDriver() {
+        throw new IllegalStateException("LoadDriver is a static utility class and cannot be instantiated");
+    }
+
+    public static BenchReport run(String target, LoadProfile profile, Operation operation) throws InterruptedException {
+        final var start = System.nanoTime();
+        final var measureStart = start + profile.warmup().toNanos();
+        final var end = measureStart + profile.duration().toNanos();
+
+        final var histograms = new ArrayList<LatencyHistogram>();
+        final var errors = new LongAdder();
+        final var allocated = new LongAdder();
+        final var ticket = new AtomicLong();
+        final var workers = new ArrayList<Thread>();
+        for (int i = 0; i < profile.concurrency(); i++) {
+            final var histogram = new LatencyHistogram();
+            histograms.add(histogram);
+            final Runnable loop = profile.mode() == LoadProfile.Mode.CLOSED
+                    ? () -> closedLoop(operation, ticket, histogram, errors, allocated, measureStart, end)
+                    : () -> openLoop(operation, ticket, histogram, errors, allocated, profile.rate(), start, measureStart, end);
+            workers.add(new Thread(loop, "bench-worker-" + i));
+        }
+        workers.forEach(Thread::start);
+
+        // Take the GC baseline once the warmup is over
+        parkUntil(measureStart);
+        final var gcCountBefore = gcCount();
+        final var gcMillisBefore = gcMillis();
+        for (var worker : workers) {
+            worker.join();
+        }
+
+        final var latency = new LatencyHistogram();
+        histograms.forEach(latency::merge);
+        return new BenchReport(target, profile, latency.getCount(), errors.sum(), end - measureStart, latency,
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore,
+                allocatedBytes() < 0 ? -1 : allocated.sum());
+    }
+
+    private static void closedLoop(Operation operation, AtomicLong ticket, LatencyHistogram histogram,
+                                   LongAdder errors, LongAdder allocated, long measureStart, long end) {
+        var allocatedAtStart = -1L;
+        while (true) {
+            final var opStart = System.nanoTime();
+            if (opStart >= end) break;
+            final var measured = opStart >= measureStart;
+            if (measured && allocatedAtStart < 0) allocatedAtStart = allocatedBytes();
+            execute(operation, ticket.getAndIncrement(), opStart, measured, histogram, errors);
+        }
+        if (allocatedAtStart >= 0) allocated.add(allocatedBytes() - allocatedAtStart);
+    }
+
+    private static void openLoop(Operation operation, AtomicLong ticket, LatencyHistogram histogram,
+                                 LongAdder errors, LongAdder allocated, double rate,
+                                 long start, long measureStart, long end) {
+        final var interval = 1e9 / rate;
+        var allocatedAtStart = -1L;
+        while (true) {
+            final var iteration = ticket.getAndIncrement();
+            final var intendedStart = start + (long) (iteration * interval);
+            if (intendedStart >= end) break;
+            parkUntil(intendedStart);
+            final var measured = intendedStart >= measureStart;
+            if (measured && allocatedAtStart < 0) allocatedAtStart = allocatedBytes();
+            execute(operation, iteration, intendedStart, measured, histogram, errors);
+        }
+        if (allocatedAtStart >= 0) allocated.add(allocatedBytes() - allocatedAtStart);
+    }
+
+    private static void execute(Operation operation, long iteration, long from, boolean measured,
+                                LatencyHistogram histogram, LongAdder errors) {
+        try {
+            operation.run(iteration);
+            if (measured) histogram.record(System.nanoTime() - from);
+        } catch (Exception e) {
+            if (measured) errors.increment();
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        for (var remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(gc -> Math.max(0, gc.getCollectionCount()))
+                .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(gc -> Math.max(0, gc.getCollectionTime()))
+                .sum();
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, or -1 if the JVM can't tell us
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
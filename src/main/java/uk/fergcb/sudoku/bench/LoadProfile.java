@@ -0,0 +1,25 @@
+package uk.fergcb.sudoku.bench;
+
+import java.time.Duration;
+
+/**
+ * How a {@link LoadDriver} applies load.
+ *
+ * @param mode        closed loop (each worker starts its next operation as soon as the last finishes) or open loop
+ *                    (operations are started at a fixed rate, whether or not earlier ones have finished)
+ * @param concurrency the number of worker threads
+ * @param rate        for open-loop runs, the target operations per second across all workers
+ * @param warmup      how long to run before measuring
+ * @param duration    how long to measure for
+ */
+public record LoadProfile(Mode mode, int concurrency, double rate, Duration warmup, Duration duration) {
+
+    public LoadProfile {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be at least 1.");
+        if (mode == Mode.OPEN && rate <= 0)
+            throw new IllegalArgumentException("An open-loop run needs a positive arrival rate.");
+    }
+
+    public enum Mode {CLOSED, OPEN}
+}
@@ -0,0 +1,48 @@
+package uk.fergcb.sudoku.bench;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures the cold wall-clock time of a command, by launching it as a fresh process repeatedly.
+ * <p>
+ * Usage: {@code StartupBenchmark <runs> <command...>}, e.g. comparing the JVM and native builds of the CLI:
+ * <pre>
+ *   java -cp target/classes uk.fergcb.sudoku.bench.StartupBenchmark 20 target/sudoku generate
+ *   java -cp target/classes uk.fergcb.sudoku.bench.StartupBenchmark 20 java -cp ... uk.fergcb.sudoku.SudokuCommand generate
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: StartupBenchmark <runs> <command...>");
+            System.exit(2);
+        }
+        final var runs = Integer.parseInt(args[0]);
+        final var command = Arrays.copyOfRange(args, 1, args.length);
+
+        final var histogram = new LatencyHistogram();
+        for (int i = 0; i < runs; i++) {
+            final var start = System.nanoTime();
+            final var exitCode = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start()
+                    .waitFor();
+            histogram.record(System.nanoTime() - start);
+            if (exitCode != 0) {
+                System.err.printf("Run %d exited with code %d.%n", i + 1, exitCode);
+                System.exit(1);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%s%n%d runs: min %.1fms p50 %.1fms p90 %.1fms max %.1fms%n",
+                String.join(" ", command), runs,
+                histogram.getMin() / 1e6,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(90) / 1e6,
+                histogram.getMax() / 1e6);
+    }
+}
@@ -0,0 +1,463 @@
+package uk.fergcb.sudoku.constraints;
+
+import uk.fergcb.sudoku.util.Position;
+import uk.fergcb.sudoku.util.Zobrist;
+import uk.fergcb.sudoku.validation.ValidationType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rules of a sudoku variant, as a set of regions in which no value may repeat, compiled into dense lookup tables.
+ * <p>
+ * Regions are declared once through a {@link Builder} - rows, columns, boxes, diagonals, irregular jigsaw regions and
+ * Killer cages (which must also add up to a given sum) - and compiled into flat {@code int[]} tables: the cells of
+ * each unit, the units of each cell, and the peers of each cell (every other cell it shares a unit with). Each table
+ * is stored CSR-style as one array of entries and one array of offsets, so the entries for index {@code i} are
+ * {@code entries[offsets[i]]} up to (but excluding) {@code entries[offsets[i + 1]]}.
+ * <p>
+ * Cells are addressed by index ({@code row * size + col}). The tables returned by the getters are shared, and must not
+ * be modified.
+ */
+public final class ConstraintModel {
+
+    private static final Map<Integer, ConstraintModel> CLASSIC = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int[] unitOffsets;
+    private final int[] unitCells;
+    private final ValidationType[] unitTypes;
+    private final int[] unitSums;
+    private final int[] cellUnitOffsets;
+    private final int[] cellUnits;
+    private final int[] peerOffsets;
+    private final int[] peers;
+    private final int[] peerRows;
+    private final int[] peerCols;
+    private final int unitsPerCell;
+    private final int[] paddedCellUnits;
+    private final boolean hasSums;
+    private final long zobristKey;
+
+    private ConstraintModel(int size, List<ValidationType> types, List<int[]> units, List<Integer> sums) {
+        final var cellCount = size * size;
+        this.size = size;
+        this.unitTypes = types.toArray(new ValidationType[0]);
+        this.unitSums = sums.stream().mapToInt(Integer::intValue).toArray();
+        this.hasSums = Arrays.stream(unitSums).anyMatch(sum -> sum > 0);
+
+        this.unitOffsets = new int[units.size() + 1];
+        for (int u = 0; u < units.size(); u++) {
+            unitOffsets[u + 1] = unitOffsets[u] + units.get(u).length;
+        }
+        this.unitCells = new int[unitOffsets[units.size()]];
+        for (int u = 0; u < units.size(); u++) {
+            System.arraycopy(units.get(u), 0, unitCells, unitOffsets[u], units.get(u).length);
+        }
+
+        final var unitsOfCell = new ArrayList<List<Integer>>();
+        for (int cell = 0; cell < cellCount; cell++) unitsOfCell.add(new ArrayList<>());
+        for (int u = 0; u < units.size(); u++) {
+            for (var cell : units.get(u)) unitsOfCell.get(cell).add(u);
+        }
+        this.cellUnitOffsets = new int[cellCount + 1];
+        this.peerOffsets = new int[cellCount + 1];
+        final var cellUnitList = new ArrayList<Integer>();
+        final var peerList = new ArrayList<Integer>();
+        for (int cell = 0; cell < cellCount; cell++) {
+            final var cellPeers = new BitSet(cellCount);
+            for (var u : unitsOfCell.get(cell)) {
+                cellUnitList.add(u);
+                for (int i = unitOffsets[u]; i < unitOffsets[u + 1]; i++) cellPeers.set(unitCells[i]);
+            }
+            cellPeers.clear(cell);
+            cellPeers.stream().forEach(peerList::add);
+            cellUnitOffsets[cell + 1] = cellUnitList.size();
+            peerOffsets[cell + 1] = peerList.size();
+        }
+        this.cellUnits = cellUnitList.stream().mapToInt(Integer::intValue).toArray();
+        this.peers = peerList.stream().mapToInt(Integer::intValue).toArray();
+        this.peerRows = Arrays.stream(peers).map(peer -> peer / size).toArray();
+        this.peerCols = Arrays.stream(peers).map(peer -> peer % size).toArray();
+
+        var maxUnits = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            maxUnits = Math.max(maxUnits, cellUnitOffsets[cell + 1] - cellUnitOffsets[cell]);
+        }
+        this.unitsPerCell = maxUnits;
+        this.paddedCellUnits = new int[cellCount * maxUnits];
+        for (int cell = 0; cell < cellCount; cell++) {
+            final var count = cellUnitOffsets[cell + 1] - cellUnitOffsets[cell];
+            System.arraycopy(cellUnits, cellUnitOffsets[cell], paddedCellUnits, cell * maxUnits, count);
+            Arrays.fill(paddedCellUnits, cell * maxUnits + count, (cell + 1) * maxUnits, units.size());
+        }
+
+        var key = Zobrist.mix(size);
+        for (var offset : unitOffsets) key = Zobrist.mix(key ^ offset);
+        for (var cell : unitCells) key = Zobrist.mix(key ^ cell);
+        for (var type : unitTypes) key = Zobrist.mix(key ^ type.ordinal());
+        for (var sum : unitSums) key = Zobrist.mix(key ^ sum);
+        this.zobristKey = key;
+    }
+
+    /**
+     * @param size the side length of the grid
+     * @return the standard rules: rows, columns and square boxes (shared between callers)
+     */
+    public static ConstraintModel classic(int size) {
+        return CLASSIC.computeIfAbsent(size, s -> builder(s).rows().columns().boxes().build());
+    }
+
+    /**
+     * @param size the side length of the grid
+     * @return the X-Sudoku rules: the standard rules, plus both main diagonals
+     */
+    public static ConstraintModel xSudoku(int size) {
+        return builder(size).rows().columns().boxes().diagonals().build();
+    }
+
+    /**
+     * @param regions the region number of each cell, where every region has exactly {@code size} cells
+     * @return the jigsaw rules: rows, columns and the given irregular regions
+     */
+    public static ConstraintModel jigsaw(int[][] regions) {
+        return builder(regions.length).rows().columns().jigsaw(regions).build();
+    }
+
+    /**
+     * Rebuild a model from {@link #toUnits()}.
+     *
+     * @param size  the side length of the grid
+     * @param units the model's units, flattened
+     * @return a model equal to the one the units came from (the shared instance, if it is the classic one)
+     */
+    public static ConstraintModel fromUnits(int size, int[] units) {
+        final var builder = builder(size);
+        final var types = ValidationType.values();
+        for (int i = 0; i < units.length; ) {
+            if (i + 3 > units.length || units[i] < 0 || units[i] >= types.length || units[i + 2] < 0
+                    || i + 3 + units[i + 2] > units.length)
+                throw new IllegalArgumentException("Malformed units.");
+            final var cells = Arrays.copyOfRange(units, i + 3, i + 3 + units[i + 2]);
+            for (var cell : cells) {
+                if (cell < 0 || cell >= size * size)
+                    throw new IllegalArgumentException(String.format("Cell %d is outside the grid.", cell));
+            }
+            builder.add(types[units[i]], cells, units[i + 1]);
+            i += 3 + cells.length;
+        }
+        final var model = builder.build();
+        return model.isClassic() ? classic(size) : model;
+    }
+
+    public static Builder builder(int size) {
+        return new Builder(size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCellCount() {
+        return size * size;
+    }
+
+    public int getUnitCount() {
+        return unitTypes.length;
+    }
+
+    public ValidationType getUnitType(int unit) {
+        return unitTypes[unit];
+    }
+
+    /**
+     * @return the sum the unit's values must add up to, or 0 if it has no sum
+     */
+    public int getUnitSum(int unit) {
+        return unitSums[unit];
+    }
+
+    /**
+     * @return true if any unit has a sum, i.e. candidates must also be checked with {@link #sumCandidates}
+     */
+    public boolean hasSums() {
+        return hasSums;
+    }
+
+    public int[] getUnitOffsets() {
+        return unitOffsets;
+    }
+
+    public int[] getUnitCells() {
+        return unitCells;
+    }
+
+    public int[] getCellUnitOffsets() {
+        return cellUnitOffsets;
+    }
+
+    public int[] getCellUnits() {
+        return cellUnits;
+    }
+
+    /**
+     * @return the number of units the most constrained cell belongs to (3 for classic sudoku)
+     */
+    public int getUnitsPerCell() {
+        return unitsPerCell;
+    }
+
+    /**
+     * The units of each cell at a fixed stride of {@link #getUnitsPerCell()}, so the units of {@code cell} start at
+     * {@code cell * getUnitsPerCell()} with no offset lookup. Cells in fewer units are padded with the index
+     * {@link #getUnitCount()}, a unit that doesn't exist, so callers should allow one extra (always empty) unit.
+     */
+    public int[] getPaddedCellUnits() {
+        return paddedCellUnits;
+    }
+
+    public int[] getPeerOffsets() {
+        return peerOffsets;
+    }
+
+    public int[] getPeers() {
+        return peers;
+    }
+
+    /**
+     * @return the row of each entry of {@link #getPeers()}, for callers working on a 2D grid
+     */
+    public int[] getPeerRows() {
+        return peerRows;
+    }
+
+    /**
+     * @return the column of each entry of {@link #getPeers()}, for callers working on a 2D grid
+     */
+    public int[] getPeerCols() {
+        return peerCols;
+    }
+
+    /**
+     * @return a 64-bit key for the rules, to XOR into a grid's Zobrist hash so that the same values under different
+     * rules hash differently
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return every unit in turn as its type's ordinal, its sum (0 if it has none), its length and then its cells, in
+     * one array which {@link #fromUnits(int, int[])} turns back into the model
+     */
+    public int[] toUnits() {
+        final var units = new int[3 * unitTypes.length + unitCells.length];
+        var i = 0;
+        for (int u = 0; u < unitTypes.length; u++) {
+            final var length = unitOffsets[u + 1] - unitOffsets[u];
+            units[i++] = unitTypes[u].ordinal();
+            units[i++] = unitSums[u];
+            units[i++] = length;
+            System.arraycopy(unitCells, unitOffsets[u], units, i, length);
+            i += length;
+        }
+        return units;
+    }
+
+    /**
+     * @return true if these are the standard rules for the grid size
+     */
+    public boolean isClassic() {
+        return equals(classic(size));
+    }
+
+    /**
+     * Narrow down the candidates for an empty cell in a unit with a sum, dropping values which leave the rest of the
+     * unit's empty cells no way of making up the remaining total with distinct unused values. This is a bound rather
+     * than an exact test, so it may keep a value which can't work, but never drops one which can; the unit's last empty
+     * cell only ever accepts the exact remaining total.
+     *
+     * @param candidates a bitmask of the candidates for the cell (value {@code v} is bit {@code v - 1})
+     * @param remaining  the unit's sum, minus the values already placed in it
+     * @param empty      the number of empty cells in the unit, including this one
+     * @param unused     a bitmask of the values not yet placed in the unit
+     * @return the candidates that can still make up the sum
+     */
+    public static int sumCandidates(int candidates, int remaining, int empty, int unused) {
+        var result = 0;
+        for (var rest = candidates; rest != 0; rest &= rest - 1) {
+            final var bit = rest & -rest;
+            final var value = Integer.numberOfTrailingZeros(bit) + 1;
+            if (canMakeSum(unused & ~bit, remaining - value, empty - 1)) result |= bit;
+        }
+        return result;
+    }
+
+    /**
+     * @return false if {@code count} distinct values from the {@code pool} bitmask certainly can't add up to
+     * {@code sum}, i.e. it is below the smallest or above the largest possible total (exact when the pool is a run of
+     * consecutive values)
+     */
+    private static boolean canMakeSum(int pool, int sum, int count) {
+        if (count == 0) return sum == 0;
+        if (Integer.bitCount(pool) < count) return false;
+        var min = 0;
+        var low = pool;
+        for (int i = 0; i < count; i++) {
+            min += Integer.numberOfTrailingZeros(low) + 1;
+            low &= low - 1;
+        }
+        var max = 0;
+        var high = pool;
+        for (int i = 0; i < count; i++) {
+            final var top = 31 - Integer.numberOfLeadingZeros(high);
+            max += top + 1;
+            high &= ~(1 << top);
+        }
+        return min <= sum && sum <= max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConstraintModel other)) return false;
+        return size == other.size
+                && Arrays.equals(unitOffsets, other.unitOffsets)
+                && Arrays.equals(unitCells, other.unitCells)
+                && Arrays.equals(unitTypes, other.unitTypes)
+                && Arrays.equals(unitSums, other.unitSums);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * size + Arrays.hashCode(unitCells)) + Arrays.hashCode(unitSums);
+    }
+
+    /**
+     * Declares the regions of a model.
+     */
+    public static class Builder {
+        private final int size;
+        private final int boxSize;
+        private final List<ValidationType> types = new ArrayList<>();
+        private final List<int[]> units = new ArrayList<>();
+        private final List<Integer> sums = new ArrayList<>();
+
+        private Builder(int size) {
+            if (size < 1 || size > 64)
+                throw new IllegalArgumentException("Constraint models support sizes from 1 to 64.");
+            this.size = size;
+            this.boxSize = (int) Math.sqrt(size);
+        }
+
+        public Builder rows() {
+            for (int r = 0; r < size; r++) {
+                final var cells = new int[size];
+                for (int c = 0; c < size; c++) cells[c] = r * size + c;
+                add(ValidationType.ROW, cells, 0);
+            }
+            return this;
+        }
+
+        public Builder columns() {
+            for (int c = 0; c < size; c++) {
+                final var cells = new int[size];
+                for (int r = 0; r < size; r++) cells[r] = r * size + c;
+                add(ValidationType.COL, cells, 0);
+            }
+            return this;
+        }
+
+        public Builder boxes() {
+            if (boxSize * boxSize != size)
+                throw new IllegalArgumentException("Square boxes need a square grid size.");
+            for (int br = 0; br < boxSize; br++) {
+                for (int bc = 0; bc < boxSize; bc++) {
+                    final var cells = new int[size];
+                    var i = 0;
+                    for (int r = br * boxSize; r < (br + 1) * boxSize; r++) {
+                        for (int c = bc * boxSize; c < (bc + 1) * boxSize; c++) cells[i++] = r * size + c;
+                    }
+                    add(ValidationType.BOX, cells, 0);
+                }
+            }
+            return this;
+        }
+
+        public Builder diagonals() {
+            final var main = new int[size];
+            final var anti = new int[size];
+            for (int i = 0; i < size; i++) {
+                main[i] = i * size + i;
+                anti[i] = i * size + (size - 1 - i);
+            }
+            add(ValidationType.DIAGONAL, main, 0);
+            add(ValidationType.DIAGONAL, anti, 0);
+            return this;
+        }
+
+        /**
+         * @param regions the region number of each cell, where every region has exactly {@code size} cells
+         */
+        public Builder jigsaw(int[][] regions) {
+            if (regions.length != size)
+                throw new IllegalArgumentException("Jigsaw regions must cover the whole grid.");
+            final var cells = new ArrayList<List<Integer>>();
+            for (int r = 0; r < size; r++) {
+                if (regions[r].length != size)
+                    throw new IllegalArgumentException("Jigsaw regions must cover the whole grid.");
+                for (int c = 0; c < size; c++) {
+                    final var region = regions[r][c];
+                    if (region < 0 || region >= size)
+                        throw new IllegalArgumentException(String.format("Region %d is out of range.", region));
+                    while (cells.size() <= region) cells.add(new ArrayList<>());
+                    cells.get(region).add(r * size + c);
+                }
+            }
+            for (var region : cells) {
+                if (region.size() != size)
+                    throw new IllegalArgumentException(String.format("Jigsaw regions must have %d cells.", size));
+                add(ValidationType.JIGSAW, region.stream().mapToInt(Integer::intValue).toArray(), 0);
+            }
+            return this;
+        }
+
+        /**
+         * Add a Killer cage: its values must not repeat and must add up to {@code sum}.
+         */
+        public Builder cage(int sum, Position... cells) {
+            if (size > 31)
+                throw new IllegalArgumentException("Cages are only supported on grids of size 31 or less.");
+            final var indices = new int[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                final var pos = cells[i];
+                if (pos.row() < 0 || pos.row() >= size || pos.col() < 0 || pos.col() >= size)
+                    throw new IllegalArgumentException(String.format("Cell %s is outside the grid.", pos));
+                indices[i] = pos.row() * size + pos.col();
+            }
+            if (sum < 1 || !canMakeSum((int) ((1L << size) - 1), sum, indices.length))
+                throw new IllegalArgumentException(
+                        String.format("No %d distinct values add up to %d.", indices.length, sum));
+            add(ValidationType.CAGE, indices, sum);
+            return this;
+        }
+
+        public ConstraintModel build() {
+            return new ConstraintModel(size, types, units, sums);
+        }
+
+        private void add(ValidationType type, int[] cells, int sum) {
+            if (cells.length == 0 || cells.length > size)
+                throw new IllegalArgumentException(String.format("Regions must have between 1 and %d cells.", size));
+            if (Arrays.stream(cells).distinct().count() != cells.length)
+                throw new IllegalArgumentException("Regions must not contain the same cell twice.");
+            types.add(type);
+            units.add(cells);
+            sums.add(sum);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package uk.fergcb.sudoku.distributed;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.constraints.ConstraintModel;
+import uk.fergcb.sudoku.solving.SolveResult;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out units of a search to {@link DistributedWorker}s over a local socket and gathers their results.
+ * <p>
+ * The search starts as a single unit for the whole board. Workers that run out of budget hand back the unexplored
+ * rest of their unit in pieces, which go to the front of the queue for whichever worker asks next, so idle workers
+ * naturally take over work from busy ones. If a worker disconnects, its unit is put back on the queue.
+ * <p>
+ * Worker processes launched on this machine can be {@link #watch(List) watched}: if every one of them exits before
+ * the search is finished, the search fails rather than waiting forever for a worker to come back.
+ */
+public class Coordinator implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 50;
+
+    private final ServerSocket server;
+    private final boolean singleSolution;
+    private final int size;
+    private final ConstraintModel model;
+    private final BlockingDeque<WorkUnit> queue = new LinkedBlockingDeque<>();
+    /**
+     * Units queued or assigned but not yet reported on. The search is complete when this reaches zero.
+     */
+    private final AtomicLong outstanding = new AtomicLong(1);
+    private final List<Board> solutions = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+    private volatile boolean stopped = false;
+    private volatile String failure = null;
+
+    private Coordinator(Board board, boolean singleSolution, int port) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.singleSolution = singleSolution;
+        this.size = board.getSize();
+        this.model = board.getModel();
+        queue.add(WorkUnit.of(board));
+    }
+
+    /**
+     * Start accepting workers for a search. The accept loop only starts once the coordinator is fully constructed.
+     *
+     * @param board          the board to solve
+     * @param singleSolution whether to stop at the first solution found
+     * @param port           the local port to listen on, or 0 for any free port
+     */
+    public static Coordinator start(Board board, boolean singleSolution, int port) throws IOException {
+        final var coordinator = new Coordinator(board, singleSolution, port);
+        coordinator.connections.submit(coordinator::acceptWorkers);
+        return coordinator;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Fail the search if all of these worker processes exit before it is finished. A worker which exits mid-unit
+     * drops its connection, so its unit goes back on the queue for the others.
+     *
+     * @param workers the processes running {@link DistributedWorker}s for this search
+     */
+    public void watch(List<Process> workers) {
+        // Count them all first, so that one exiting straight away can't look like the last
+        liveWorkers.addAndGet(workers.size());
+        for (var worker : workers) {
+            worker.onExit().thenRun(this::workerExited);
+        }
+    }
+
+    private void workerExited() {
+        if (liveWorkers.decrementAndGet() == 0 && done.getCount() > 0) {
+            failure = "Every worker exited before the search was finished.";
+            cancel();
+        }
+    }
+
+    /**
+     * Wait for the search to finish.
+     *
+     * @return the solutions found by the workers
+     * @throws IllegalStateException if every watched worker exited before the search was finished
+     */
+    public SolveResult await() throws InterruptedException {
+        done.await();
+        if (failure != null) throw new IllegalStateException(failure);
+        synchronized (solutions) {
+            if (solutions.isEmpty()) return SolveResult.deadEnd();
+            return new SolveResult.SolutionFound(List.copyOf(solutions));
+        }
+    }
+
+    /**
+     * Stop handing out work. Workers are told to stop the next time they ask for a unit.
+     */
+    public void cancel() {
+        stopped = true;
+        done.countDown();
+    }
+
+    private void acceptWorkers() {
+        while (!server.isClosed()) {
+            try {
+                final var socket = server.accept();
+                connections.submit(() -> serve(socket));
+            } catch (IOException e) {
+                // The server socket has been closed
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        WorkUnit current = null;
+        try (socket; var out = new ObjectOutputStream(socket.getOutputStream())) {
+            out.flush();
+            final var in = DistributedWorker.openInput(socket);
+            while (true) {
+                final var message = (Message) in.readObject();
+                if (message instanceof Message.Request) {
+                    current = nextUnit();
+                    if (current == null) {
+                        DistributedWorker.send(out, new Message.Stop());
+                        return;
+                    }
+                    DistributedWorker.send(out, new Message.Assign(current, singleSolution));
+                } else if (message instanceof Message.Report report) {
+                    current = null;
+                    record(report);
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            // The worker went away - give its unit to someone else
+            if (current != null && !stopped) queue.addFirst(current);
+        }
+    }
+
+    private WorkUnit nextUnit() {
+        try {
+            while (!stopped) {
+                final var unit = queue.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (unit != null) return unit;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void record(Message.Report report) {
+        for (var cells : report.solutions()) {
+            final var grid = new int[size][size];
+            for (int r = 0; r < size; r++) {
+                System.arraycopy(cells, r * size, grid[r], 0, size);
+            }
+            solutions.add(Board.from(grid, model));
+        }
+        if (singleSolution && !solutions.isEmpty()) {
+            cancel();
+            return;
+        }
+
+        // Queue the remainder depth-first, keeping its order, before retiring the reported unit
+        final var remainder = report.remainder();
+        outstanding.addAndGet(remainder.size());
+        for (int i = remainder.size() - 1; i >= 0; i--) {
+            queue.addFirst(remainder.get(i));
+        }
+        if (outstanding.decrementAndGet() == 0) cancel();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cancel();
+        server.close();
+        connections.shutdown();
+    }
+}
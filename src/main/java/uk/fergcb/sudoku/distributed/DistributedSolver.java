@@ -0,0 +1,67 @@
+package uk.fergcb.sudoku.distributed;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.solving.SolveResult;
+import uk.fergcb.sudoku.solving.Solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Solves a board by spreading the search over several worker JVMs on this machine.
+ * <p>
+ * Each call starts a {@link Coordinator} on a free local port and launches the workers as child processes
+ * running {@link DistributedWorker} from the current classpath. The workers are destroyed once the search is over.
+ * If they all exit before it is, the solve fails with an {@link IllegalStateException}.
+ */
+public class DistributedSolver implements Solver {
+
+    private final int workers;
+    private final boolean singleSolution;
+    private final long nodeBudget;
+
+    public DistributedSolver(int workers, boolean singleSolution) {
+        this(workers, singleSolution, DistributedWorker.DEFAULT_NODE_BUDGET);
+    }
+
+    /**
+     * @param workers        the number of worker processes to launch
+     * @param singleSolution whether to stop at the first solution found
+     * @param nodeBudget     the number of search nodes a worker spends on a unit before handing the rest of it back
+     */
+    public DistributedSolver(int workers, boolean singleSolution, long nodeBudget) {
+        if (workers < 1)
+            throw new IllegalArgumentException("At least one worker is required.");
+        this.workers = workers;
+        this.singleSolution = singleSolution;
+        this.nodeBudget = nodeBudget;
+    }
+
+    @Override
+    public SolveResult solve(Board board) {
+        final var processes = new ArrayList<Process>();
+        try (var coordinator = Coordinator.start(board, singleSolution, 0)) {
+            final var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < workers; i++) {
+                processes.add(new ProcessBuilder(java,
+                        "-cp", System.getProperty("java.class.path"),
+                        DistributedWorker.class.getName(),
+                        "127.0.0.1", String.valueOf(coordinator.getPort()), String.valueOf(nodeBudget))
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            coordinator.watch(processes);
+            return coordinator.await();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SolveResult.deadEnd();
+        } finally {
+            processes.forEach(Process::destroy);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package uk.fergcb.sudoku.distributed;
+
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * Connects to a {@link Coordinator} and searches the units of work it hands out until told to stop.
+ * <p>
+ * Workers are normally run as separate JVMs, e.g.
+ * {@code java -cp sudoku.jar uk.fergcb.sudoku.distributed.DistributedWorker 127.0.0.1 <port> [node budget]}.
+ */
+public class DistributedWorker implements Runnable {
+
+    public static final long DEFAULT_NODE_BUDGET = 200_000;
+
+    // Messages are a record holding a list of units, each holding a few arrays
+    private static final long MAX_DEPTH = 8;
+    // Enough for the cells, the longest possible prefix or the units of a 64x64 board with boxes and diagonals
+    private static final long MAX_ARRAY_LENGTH = 1 << 14;
+    private static final Set<Class<?>> ALLOWED_CLASSES = Set.of(
+            Message.Request.class, Message.Assign.class, Message.Report.class, Message.Stop.class,
+            WorkUnit.class, ArrayList.class, Object[].class, int[].class);
+
+    /**
+     * Only lets through the messages of the protocol, so that nothing else arriving on the socket is ever
+     * deserialised.
+     */
+    static final ObjectInputFilter FILTER = info -> {
+        if (info.depth() > MAX_DEPTH) return ObjectInputFilter.Status.REJECTED;
+        if (info.arrayLength() > MAX_ARRAY_LENGTH) return ObjectInputFilter.Status.REJECTED;
+        final var type = info.serialClass();
+        if (type == null) return ObjectInputFilter.Status.UNDECIDED;
+        return ALLOWED_CLASSES.contains(type) ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    };
+
+    private final String host;
+    private final int port;
+    private final long nodeBudget;
+
+    /**
+     * @param host       the coordinator's host
+     * @param port       the coordinator's port
+     * @param nodeBudget the number of search nodes to spend on a unit before handing the rest of it back
+     */
+    public DistributedWorker(String host, int port, long nodeBudget) {
+        if (nodeBudget < 1)
+            throw new IllegalArgumentException("Node budget must be at least 1.");
+        this.host = host;
+        this.port = port;
+        this.nodeBudget = nodeBudget;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: DistributedWorker <host> <port> [node budget]");
+            System.exit(2);
+        }
+        final var nodeBudget = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_NODE_BUDGET;
+        new DistributedWorker(args[0], Integer.parseInt(args[1]), nodeBudget).run();
+    }
+
+    @Override
+    public void run() {
+        try (var socket = new Socket(host, port);
+             var out = new ObjectOutputStream(socket.getOutputStream())) {
+            // Send the stream header before blocking on the coordinator's
+            out.flush();
+            final var in = openInput(socket);
+            while (true) {
+                send(out, new Message.Request());
+                final var message = (Message) in.readObject();
+                if (message instanceof Message.Assign assign) {
+                    final var report = new UnitSearch(assign.unit(), assign.singleSolution(), nodeBudget).run();
+                    send(out, report);
+                } else {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Open the receiving side of a connection, accepting only protocol messages.
+     */
+    static ObjectInputStream openInput(Socket socket) throws IOException {
+        final var in = new ObjectInputStream(socket.getInputStream());
+        in.setObjectInputFilter(FILTER);
+        return in;
+    }
+
+    static void send(ObjectOutputStream out, Message message) throws IOException {
+        out.writeObject(message);
+        // Don't let the stream hold on to every object it has ever sent
+        out.reset();
+        out.flush();
+    }
+}
@@ -0,0 +1,33 @@
+package uk.fergcb.sudoku.distributed;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The messages exchanged between a {@link Coordinator} and its {@link DistributedWorker}s.
+ */
+sealed interface Message extends Serializable {
+
+    /**
+     * Worker to coordinator: ready for a unit of work.
+     */
+    record Request() implements Message { }
+
+    /**
+     * Coordinator to worker: search this unit.
+     */
+    record Assign(WorkUnit unit, boolean singleSolution) implements Message { }
+
+    /**
+     * Worker to coordinator: the outcome of searching the last unit assigned.
+     *
+     * @param solutions solved grids found, in row-major order
+     * @param remainder subtrees left unsearched when the worker's node budget ran out
+     */
+    record Report(List<int[]> solutions, List<WorkUnit> remainder) implements Message { }
+
+    /**
+     * Coordinator to worker: there is no more work, disconnect.
+     */
+    record Stop() implements Message { }
+}
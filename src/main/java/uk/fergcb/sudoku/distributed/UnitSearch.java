@@ -0,0 +1,82 @@
+package uk.fergcb.sudoku.distributed;
+
+import uk.fergcb.sudoku.solving.CandidateGrid;
+import uk.fergcb.sudoku.solving.CellHeuristic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A depth-first search of a single {@link WorkUnit} with a node budget.
+ * <p>
+ * When the budget runs out, the search stops where it is and hands back everything it has not yet explored as new
+ * units: the subtree it was in the middle of, plus the untried siblings at every level above it. No part of the tree
+ * is lost or searched twice, and no unit runs for much longer than the budget, which keeps work evenly spread and
+ * cancellation prompt.
+ */
+final class UnitSearch {
+
+    private final WorkUnit unit;
+    private final boolean singleSolution;
+    private final long nodeBudget;
+    private final CandidateGrid grid;
+    private final Random rand = new Random(0);
+    private final int[] path;
+    private int depth = 0;
+    private long nodes = 0;
+    private boolean exhausted = false;
+    private boolean stopped = false;
+
+    private final List<int[]> solutions = new ArrayList<>();
+    private final List<WorkUnit> remainder = new ArrayList<>();
+
+    UnitSearch(WorkUnit unit, boolean singleSolution, long nodeBudget) {
+        this.unit = unit;
+        this.singleSolution = singleSolution;
+        this.nodeBudget = nodeBudget;
+        this.grid = unit.toCandidateGrid();
+        this.path = new int[2 * grid.getCellCount()];
+    }
+
+    Message.Report run() {
+        if (grid.isConsistent()) search();
+        return new Message.Report(solutions, remainder);
+    }
+
+    private void search() {
+        // Out of budget - hand this whole subtree back
+        if (++nodes > nodeBudget) {
+            exhausted = true;
+            remainder.add(unit.child(path, depth));
+            return;
+        }
+
+        // Base case - the board is full, we've found a solution
+        final var cell = grid.selectCell(CellHeuristic.MINIMUM_REMAINING_VALUES, rand);
+        if (cell < 0) {
+            final var solution = new int[grid.getCellCount()];
+            for (int i = 0; i < solution.length; i++) solution[i] = grid.get(i);
+            solutions.add(solution);
+            stopped = singleSolution;
+            return;
+        }
+
+        final var candidates = grid.candidates(cell);
+        for (int value = 1; value <= grid.getSize() && !stopped; value++) {
+            if ((candidates & CandidateGrid.bit(value)) == 0) continue;
+            path[2 * depth] = cell;
+            path[2 * depth + 1] = value;
+            if (exhausted) {
+                // Out of budget - hand back the untried siblings
+                remainder.add(unit.child(path, depth + 1));
+                continue;
+            }
+            grid.place(cell, value);
+            depth++;
+            search();
+            depth--;
+            grid.clear(cell);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package uk.fergcb.sudoku.distributed;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.constraints.ConstraintModel;
+import uk.fergcb.sudoku.solving.CandidateGrid;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A serialisable subtree of a search: the board being solved, under its rules, plus the assignments leading to the
+ * subtree's root.
+ *
+ * @param size   side length of the board
+ * @param units  the board's rules, as {@link ConstraintModel#toUnits()}
+ * @param cells  the board's cells in row-major order (0 for empty)
+ * @param prefix alternating cell indexes and values assigned on top of the board
+ */
+public record WorkUnit(int size, int[] units, int[] cells, int[] prefix) implements Serializable {
+
+    public static WorkUnit of(Board board) {
+        final var size = board.getSize();
+        final var cells = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(board.getGrid()[r], 0, cells, r * size, size);
+        }
+        return new WorkUnit(size, board.getModel().toUnits(), cells, new int[0]);
+    }
+
+    /**
+     * Create the unit for a subtree below this one.
+     *
+     * @param path  alternating cell indexes and values assigned below this unit's root
+     * @param depth number of assignments from {@code path} to include
+     * @return the child unit
+     */
+    public WorkUnit child(int[] path, int depth) {
+        final var childPrefix = Arrays.copyOf(prefix, prefix.length + 2 * depth);
+        System.arraycopy(path, 0, childPrefix, prefix.length, 2 * depth);
+        return new WorkUnit(size, units, cells, childPrefix);
+    }
+
+    /**
+     * @return the board's rules
+     */
+    public ConstraintModel toModel() {
+        return ConstraintModel.fromUnits(size, units);
+    }
+
+    /**
+     * @return a candidate grid of the board, under its rules, with the prefix assignments applied
+     */
+    public CandidateGrid toCandidateGrid() {
+        final var grid = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(cells, r * size, grid[r], 0, size);
+        }
+        final var candidateGrid = CandidateGrid.of(Board.from(grid, toModel()));
+        for (int i = 0; i < prefix.length; i += 2) {
+            candidateGrid.place(prefix[i], prefix[i + 1]);
+        }
+        return candidateGrid;
+    }
+}
@@ -0,0 +1,267 @@
+package uk.fergcb.sudoku.generation;
+
+import uk.fergcb.sudoku.Board;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fills a grid by simulated annealing rather than search, which copes far better with large, nearly empty grids.
+ * <p>
+ * Every box is kept filled with a permutation of its missing values, so boxes are always valid and the only
+ * conflicts are values missing from rows and columns. A move swaps two unfixed cells within a box, and its effect on
+ * the cost can be computed in O(1) from per-line value counts. Several independent chains run in parallel; the first
+ * to reach zero cost wins and the rest are cancelled.
+ */
+public class AnnealingGridFiller {
+
+    private static final double COOLING_RATE = 0.99;
+    private static final int STEPS_WITHOUT_IMPROVEMENT_BEFORE_REHEAT = 80;
+
+    private final int chains;
+    private final long maxStepsPerChain;
+
+    public AnnealingGridFiller() {
+        this(Runtime.getRuntime().availableProcessors(), 50_000_000L);
+    }
+
+    /**
+     * @param chains           the number of independent chains to run in parallel
+     * @param maxStepsPerChain the number of moves after which a chain gives up
+     */
+    public AnnealingGridFiller(int chains, long maxStepsPerChain) {
+        if (chains < 1)
+            throw new IllegalArgumentException("At least one chain is required.");
+        this.chains = chains;
+        this.maxStepsPerChain = maxStepsPerChain;
+    }
+
+    /**
+     * Find a full valid grid which agrees with all the given cells of a seed board.
+     *
+     * @param seed a board whose given cells are consistent within each box
+     * @return a solved board
+     * @throws IllegalStateException if no chain finds a solution within its step limit
+     */
+    public Board fill(Board seed) {
+        final var tasks = new ArrayList<Callable<Board>>();
+        for (int i = 0; i < chains; i++) {
+            final var chainSeed = ThreadLocalRandom.current().nextLong();
+            tasks.add(() -> new Chain(seed, new Random(chainSeed)).run());
+        }
+
+        try (var pool = Executors.newFixedThreadPool(chains)) {
+            return pool.invokeAny(tasks);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to fill grid.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while filling grid.", e);
+        }
+    }
+
+    /**
+     * A single annealing run.
+     */
+    private class Chain {
+        private final int size;
+        private final int boxSize;
+        private final Random rand;
+        private final int[][] grid;
+        private final boolean[][] fixed;
+        private final int[][] rowCounts;
+        private final int[][] colCounts;
+        /**
+         * The unfixed cells of each box, as {row, col} pairs.
+         */
+        private final List<int[][]> freeCells = new ArrayList<>();
+        private int cost;
+
+        private Chain(Board seed, Random rand) {
+            this.size = seed.getSize();
+            this.boxSize = seed.getBoxSize();
+            this.rand = rand;
+            this.grid = new int[size][size];
+            this.fixed = new boolean[size][size];
+            this.rowCounts = new int[size][size + 1];
+            this.colCounts = new int[size][size + 1];
+
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    grid[r][c] = seed.getGrid()[r][c];
+                    fixed[r][c] = grid[r][c] != 0;
+                }
+            }
+            fillBoxes();
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    rowCounts[r][grid[r][c]]++;
+                    colCounts[c][grid[r][c]]++;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                cost += lineCost(rowCounts[i]) + lineCost(colCounts[i]);
+            }
+        }
+
+        /**
+         * Fill the empty cells of each box with a random arrangement of the values the box is missing.
+         */
+        private void fillBoxes() {
+            for (int br = 0; br < boxSize; br++) {
+                for (int bc = 0; bc < boxSize; bc++) {
+                    final var present = new boolean[size + 1];
+                    final var free = new ArrayList<int[]>();
+                    for (int r = br * boxSize; r < (br + 1) * boxSize; r++) {
+                        for (int c = bc * boxSize; c < (bc + 1) * boxSize; c++) {
+                            if (fixed[r][c]) {
+                                if (present[grid[r][c]])
+                                    throw new IllegalArgumentException("Seed board repeats a value within a box.");
+                                present[grid[r][c]] = true;
+                            } else {
+                                free.add(new int[]{r, c});
+                            }
+                        }
+                    }
+                    final var missing = new ArrayList<Integer>();
+                    for (int v = 1; v <= size; v++) {
+                        if (!present[v]) missing.add(v);
+                    }
+                    Collections.shuffle(missing, rand);
+                    for (int i = 0; i < free.size(); i++) {
+                        grid[free.get(i)[0]][free.get(i)[1]] = missing.get(i);
+                    }
+                    if (free.size() >= 2) freeCells.add(free.toArray(new int[0][]));
+                }
+            }
+        }
+
+        private Board run() {
+            if (freeCells.isEmpty()) {
+                if (cost == 0) return Board.from(grid);
+                throw new IllegalStateException("Seed board is full but not solved.");
+            }
+
+            final var initialTemperature = initialTemperature();
+            final var stepsPerTemperature = stepsPerTemperature();
+            var temperature = initialTemperature;
+            var best = cost;
+            var plateaus = 0;
+
+            for (long step = 0; step < maxStepsPerChain; step++) {
+                if (cost == 0) return Board.from(grid);
+
+                final var box = freeCells.get(rand.nextInt(freeCells.size()));
+                final var a = box[rand.nextInt(box.length)];
+                var b = box[rand.nextInt(box.length - 1)];
+                if (b == a) b = box[box.length - 1];
+
+                final var delta = swapDelta(a, b);
+                if (delta <= 0 || rand.nextDouble() < Math.exp(-delta / temperature)) {
+                    swap(a, b);
+                    cost += delta;
+                }
+
+                if ((step + 1) % stepsPerTemperature == 0) {
+                    if (Thread.currentThread().isInterrupted())
+                        throw new CancellationException("Chain was cancelled.");
+                    temperature *= COOLING_RATE;
+                    if (cost < best) {
+                        best = cost;
+                        plateaus = 0;
+                    } else if (++plateaus >= STEPS_WITHOUT_IMPROVEMENT_BEFORE_REHEAT) {
+                        // Stuck in a local minimum - shake things up again
+                        temperature = initialTemperature;
+                        best = cost;
+                        plateaus = 0;
+                    }
+                }
+            }
+            throw new IllegalStateException("Chain did not converge.");
+        }
+
+        /**
+         * Estimate a starting temperature as the spread of cost changes from random moves.
+         */
+        private double initialTemperature() {
+            final var samples = 200;
+            var sum = 0D;
+            var sumSquares = 0D;
+            for (int i = 0; i < samples; i++) {
+                final var box = freeCells.get(rand.nextInt(freeCells.size()));
+                final var a = box[rand.nextInt(box.length)];
+                final var b = box[rand.nextInt(box.length)];
+                final var delta = a == b ? 0 : swapDelta(a, b);
+                sum += delta;
+                sumSquares += (double) delta * delta;
+            }
+            final var mean = sum / samples;
+            return Math.max(0.5, Math.sqrt(Math.max(0, sumSquares / samples - mean * mean)));
+        }
+
+        private int stepsPerTemperature() {
+            var free = 0;
+            for (var box : freeCells) free += box.length;
+            return Math.max(1, free * free / size);
+        }
+
+        /**
+         * The change in cost from swapping the values of two cells in the same box.
+         */
+        private int swapDelta(int[] a, int[] b) {
+            final int va = grid[a[0]][a[1]];
+            final int vb = grid[b[0]][b[1]];
+            var delta = 0;
+            if (a[0] != b[0]) {
+                delta += moveDelta(rowCounts[a[0]], va, vb) + moveDelta(rowCounts[b[0]], vb, va);
+            }
+            if (a[1] != b[1]) {
+                delta += moveDelta(colCounts[a[1]], va, vb) + moveDelta(colCounts[b[1]], vb, va);
+            }
+            return delta;
+        }
+
+        /**
+         * The change in a line's cost from replacing one occurrence of {@code out} with {@code in}.
+         */
+        private int moveDelta(int[] counts, int out, int in) {
+            var delta = 0;
+            if (counts[out] == 1) delta++;
+            if (counts[in] == 0) delta--;
+            return delta;
+        }
+
+        private void swap(int[] a, int[] b) {
+            final int va = grid[a[0]][a[1]];
+            final int vb = grid[b[0]][b[1]];
+            rowCounts[a[0]][va]--;
+            colCounts[a[1]][va]--;
+            rowCounts[b[0]][vb]--;
+            colCounts[b[1]][vb]--;
+            grid[a[0]][a[1]] = vb;
+            grid[b[0]][b[1]] = va;
+            rowCounts[a[0]][vb]++;
+            colCounts[a[1]][vb]++;
+            rowCounts[b[0]][va]++;
+            colCounts[b[1]][va]++;
+        }
+
+        /**
+         * The number of values missing from a line.
+         */
+        private int lineCost(int[] counts) {
+            var missing = 0;
+            for (int v = 1; v <= size; v++) {
+                if (counts[v] == 0) missing++;
+            }
+            return missing;
+        }
+    }
+}
@@ -1,71 +1,65 @@
 package uk.fergcb.sudoku.generation;
 
 import uk.fergcb.sudoku.Board;
-import uk.fergcb.sudoku.solving.ForkJoinSolver;
-import uk.fergcb.sudoku.solving.Solver;
+import uk.fergcb.sudoku.constraints.ConstraintModel;
+import uk.fergcb.sudoku.solving.BacktrackingSolver;
+import uk.fergcb.sudoku.solving.CellHeuristic;
 import uk.fergcb.sudoku.util.Position;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.stream.IntStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 public class BasicGenerator implements Generator {
 
     private final int size;
     private final double coverage;
-    private final Solver solver = new ForkJoinSolver(true);
+    private final Supplier<Board> grids;
 
     public BasicGenerator(int size, double coverage) {
-        if (size < 4 || Math.sqrt(size) % 1 != 0)
-            throw new IllegalArgumentException("Puzzle size must be a square number, 4 or more.");
+        this(ConstraintModel.classic(checkSize(size)), coverage);
+    }
+
+    /**
+     * Generate puzzles for a variant. Classic grids come from a {@link SymmetryGridFactory}; since its
+     * transformations don't preserve variant regions, grids for any other model are solved from scratch.
+     *
+     * @param model    the rules the puzzles follow
+     * @param coverage the fraction of cells to leave filled
+     */
+    public BasicGenerator(ConstraintModel model, double coverage) {
         if (coverage < 0 || coverage > 1)
             throw new IllegalArgumentException("Puzzle coverage must satisfy 0 <= coverage <= 1.");
-        this.size = size;
+        this.size = checkSize(model.getSize());
         this.coverage = coverage;
+        if (model.isClassic()) {
+            this.grids = new SymmetryGridFactory(size)::next;
+        } else {
+            this.grids = () -> solveEmptyGrid(model);
+        }
+    }
+
+    private static int checkSize(int size) {
+        if (size < 4 || Math.sqrt(size) % 1 != 0)
+            throw new IllegalArgumentException("Puzzle size must be a square number, 4 or more.");
+        return size;
     }
 
     @Override
     public Puzzle generate() {
-        final var seedBoard = generateSeedBoard();
-        final var solution = generateSolution(seedBoard);
+        final var solution = grids.get();
         final var puzzle = hideCells(solution);
         return new Puzzle(puzzle, solution);
     }
 
-    /**
-     * Generate a grid with some cells randomly allocated, from which to generate a solved board.
-     *
-     * @return the seed board
-     */
-    private Board generateSeedBoard() {
-        final var seedGrid = new int[size][size];
-
-        final var boxSize = (int) Math.sqrt(size);
-        final var diagonalBoxes = IntStream
-                .range(0, boxSize)
-                .mapToObj(i -> new ArrayList<>(Board.getBoxCells(new Position(i, i), boxSize)));
-        diagonalBoxes.forEach(box -> {
-            Collections.shuffle(box);
-            for (int i = 0; i < size; i++) {
-                final var pos = box.get(i);
-                seedGrid[pos.row()][pos.col()] = i + 1;
-            }
-        });
-
-        return Board.from(seedGrid);
-    }
-
-    /**
-     * Take a seed board and find a possible solution for it.
-     *
-     * @param seedBoard The starting point for finding a solution.
-     * @return a solved sudoku board
-     */
-    private Board generateSolution(Board seedBoard) {
-        final var solveResult = solver.solve(seedBoard);
-        if (!solveResult.hasSolutions())
-            throw new IllegalStateException("Failed to solve seed board.");
-        return solveResult.getSolution();
+    private static Board solveEmptyGrid(ConstraintModel model) {
+        final var solver = new BacktrackingSolver(
+                CellHeuristic.MINIMUM_REMAINING_VALUES, ThreadLocalRandom.current().nextLong(), true);
+        final var result = solver.solve(Board.from(new int[model.getSize()][model.getSize()], model));
+        if (!result.hasSolutions())
+            throw new IllegalStateException("No grid satisfies the constraint model.");
+        return result.getSolution();
     }
 
     /**
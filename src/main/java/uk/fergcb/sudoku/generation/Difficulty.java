@@ -0,0 +1,23 @@
+package uk.fergcb.sudoku.generation;
+
+/**
+ * How hard a puzzle is to solve by hand, judged by the hardest deduction it needs, in increasing order.
+ */
+public enum Difficulty {
+    /**
+     * Solvable with naked singles alone.
+     */
+    EASY,
+    /**
+     * Needs hidden singles.
+     */
+    MEDIUM,
+    /**
+     * Needs candidate eliminations (pointing or naked pairs).
+     */
+    HARD,
+    /**
+     * Can't be finished with any of the techniques the hint engine knows, so needs trial and error.
+     */
+    EXPERT
+}
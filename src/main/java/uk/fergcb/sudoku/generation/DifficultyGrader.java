@@ -0,0 +1,40 @@
+package uk.fergcb.sudoku.generation;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.hints.HintEngine;
+
+public final class DifficultyGrader {
+
+    private DifficultyGrader() {
+        throw new IllegalStateException("DifficultyGrader is a static utility class and cannot be instantiated");
+    }
+
+    /**
+     * Grade a puzzle by solving it the way a person would: always applying the cheapest available deduction, and
+     * noting the hardest one that was ever needed.
+     *
+     * @param puzzle a puzzle with a unique solution, under any rules without cage sums
+     * @return the puzzle's difficulty
+     * @throws IllegalArgumentException if the puzzle's rules include cage sums
+     */
+    public static Difficulty grade(Board puzzle) {
+        final var engine = new HintEngine(puzzle);
+        var hardest = Difficulty.EASY;
+        for (var hint = engine.nextHint(); hint.isPresent(); hint = engine.nextHint()) {
+            final var needed = switch (hint.get().technique()) {
+                case NAKED_SINGLE -> Difficulty.EASY;
+                case HIDDEN_SINGLE -> Difficulty.MEDIUM;
+                case POINTING, NAKED_PAIR -> Difficulty.HARD;
+            };
+            if (needed.compareTo(hardest) > 0) hardest = needed;
+            engine.apply(hint.get());
+        }
+
+        for (var row : engine.toBoard().getGrid()) {
+            for (var value : row) {
+                if (value == 0) return Difficulty.EXPERT;
+            }
+        }
+        return hardest;
+    }
+}
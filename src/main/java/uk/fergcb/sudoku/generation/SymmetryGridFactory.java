@@ -0,0 +1,194 @@
+package uk.fergcb.sudoku.generation;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.solving.BacktrackingSolver;
+import uk.fergcb.sudoku.solving.CellHeuristic;
+import uk.fergcb.sudoku.solving.Solver;
+import uk.fergcb.sudoku.util.Position;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Produces solved grids by applying random validity-preserving transformations to a small set of base grids.
+ * <p>
+ * Relabelling digits, permuting bands/stacks, permuting rows/columns within a band/stack and transposing all map a
+ * valid solution onto another valid solution, so a single solved base grid yields a huge number of distinct grids
+ * without any further search. The solver is only invoked when a base grid slot is (re)filled; from
+ * {@value #ANNEALING_MIN_SIZE}x{@value #ANNEALING_MIN_SIZE} up, search from a nearly empty seed is replaced by an
+ * {@link AnnealingGridFiller}.
+ */
+public class SymmetryGridFactory {
+
+    private static final int DEFAULT_BASE_GRIDS = 4;
+    private static final int DEFAULT_USES_PER_BASE = 10_000;
+    private static final int MAX_SEED_ATTEMPTS = 16;
+    private static final int ANNEALING_MIN_SIZE = 16;
+
+    private final int size;
+    private final int boxSize;
+    private final int usesPerBase;
+    private final Solver solver = new BacktrackingSolver(
+            CellHeuristic.MINIMUM_REMAINING_VALUES, ThreadLocalRandom.current().nextLong(), true);
+    private final AnnealingGridFiller filler = new AnnealingGridFiller();
+
+    private final int[][][] baseGrids;
+    private final int[] baseUses;
+
+    public SymmetryGridFactory(int size) {
+        this(size, DEFAULT_BASE_GRIDS, DEFAULT_USES_PER_BASE);
+    }
+
+    /**
+     * @param size        side length of the grids to produce
+     * @param baseGrids   number of solved base grids to transform
+     * @param usesPerBase number of grids derived from a base grid before it is replaced by a freshly solved one
+     */
+    public SymmetryGridFactory(int size, int baseGrids, int usesPerBase) {
+        if (size < 4 || Math.sqrt(size) % 1 != 0)
+            throw new IllegalArgumentException("Grid size must be a square number, 4 or more.");
+        if (baseGrids < 1)
+            throw new IllegalArgumentException("At least one base grid is required.");
+        if (usesPerBase < 1)
+            throw new IllegalArgumentException("Each base grid must be usable at least once.");
+        this.size = size;
+        this.boxSize = (int) Math.sqrt(size);
+        this.usesPerBase = usesPerBase;
+        this.baseGrids = new int[baseGrids][][];
+        this.baseUses = new int[baseGrids];
+    }
+
+    /**
+     * Produce a new solved grid.
+     *
+     * @return a solved sudoku board
+     */
+    public Board next() {
+        final var rand = ThreadLocalRandom.current();
+        final var base = takeBaseGrid(rand.nextInt(baseGrids.length));
+        return transform(base, rand);
+    }
+
+    /**
+     * Fetch the base grid in the given slot, solving a fresh one if the slot is empty or has been used up.
+     *
+     * @param slot index of the base grid slot
+     * @return the base grid
+     */
+    private synchronized int[][] takeBaseGrid(int slot) {
+        if (baseGrids[slot] == null || baseUses[slot] >= usesPerBase) {
+            baseGrids[slot] = solveBaseGrid();
+            baseUses[slot] = 0;
+        }
+        baseUses[slot]++;
+        return baseGrids[slot];
+    }
+
+    /**
+     * Find a brand-new solved grid by searching from a randomly seeded board.
+     * <p>
+     * On the smallest grids some seeds have no solution, so a few fresh seeds are tried before giving up.
+     *
+     * @return the solved grid
+     */
+    private int[][] solveBaseGrid() {
+        if (size >= ANNEALING_MIN_SIZE)
+            return filler.fill(generateSeedBoard()).getGrid();
+        for (int attempt = 0; attempt < MAX_SEED_ATTEMPTS; attempt++) {
+            final var solveResult = solver.solve(generateSeedBoard());
+            if (solveResult.hasSolutions())
+                return solveResult.getSolution().getGrid();
+        }
+        throw new IllegalStateException("Failed to solve seed board.");
+    }
+
+    /**
+     * Generate a grid with the diagonal boxes randomly filled, from which to search for a solved board.
+     * <p>
+     * The diagonal boxes share no rows or columns, so they can be filled independently without conflict.
+     *
+     * @return the seed board
+     */
+    private Board generateSeedBoard() {
+        final var seedGrid = new int[size][size];
+
+        final var diagonalBoxes = IntStream
+                .range(0, boxSize)
+                .mapToObj(i -> new ArrayList<>(Board.getBoxCells(new Position(i, i), boxSize)));
+        diagonalBoxes.forEach(box -> {
+            Collections.shuffle(box);
+            for (int i = 0; i < size; i++) {
+                final var pos = box.get(i);
+                seedGrid[pos.row()][pos.col()] = i + 1;
+            }
+        });
+
+        return Board.from(seedGrid);
+    }
+
+    /**
+     * Apply a random combination of validity-preserving transformations to a solved grid.
+     *
+     * @param base the solved grid to transform (left unmodified)
+     * @param rand source of randomness
+     * @return a new solved board
+     */
+    private Board transform(int[][] base, Random rand) {
+        final var digits = permutation(size + 1, 1, rand);
+        final var rows = linePermutation(rand);
+        final var cols = linePermutation(rand);
+        final var transpose = rand.nextBoolean();
+
+        final var grid = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            final var row = grid[r];
+            for (int c = 0; c < size; c++) {
+                final var value = transpose ? base[cols[c]][rows[r]] : base[rows[r]][cols[c]];
+                row[c] = digits[value];
+            }
+        }
+        return Board.from(grid);
+    }
+
+    /**
+     * Build a random row (or column) ordering which keeps lines within their band (or stack):
+     * the bands are shuffled as a whole, and the lines inside each band are shuffled independently.
+     *
+     * @param rand source of randomness
+     * @return mapping from new line index to original line index
+     */
+    private int[] linePermutation(Random rand) {
+        final var bands = permutation(boxSize, 0, rand);
+        final var lines = new int[size];
+        for (int b = 0; b < boxSize; b++) {
+            final var within = permutation(boxSize, 0, rand);
+            for (int i = 0; i < boxSize; i++) {
+                lines[b * boxSize + i] = bands[b] * boxSize + within[i];
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Build a random permutation of the indices {@code from..length-1}, leaving indices below {@code from} fixed.
+     *
+     * @param length number of indices
+     * @param from   first index to permute
+     * @param rand   source of randomness
+     * @return the permutation
+     */
+    private static int[] permutation(int length, int from, Random rand) {
+        final var perm = new int[length];
+        for (int i = 0; i < length; i++) perm[i] = i;
+        for (int i = length - 1; i > from; i--) {
+            final var j = from + rand.nextInt(i - from + 1);
+            final var tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+        return perm;
+    }
+}
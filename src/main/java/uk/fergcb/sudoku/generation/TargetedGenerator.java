@@ -0,0 +1,268 @@
+package uk.fergcb.sudoku.generation;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.solving.TranspositionCache;
+import uk.fergcb.sudoku.solving.UniquenessChecker;
+import uk.fergcb.sudoku.util.Position;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates unique puzzles within a band of {@link Difficulty}, rather than with a fixed number of clues.
+ * <p>
+ * Each candidate is dug out of a solved grid one symmetric pair of cells at a time, keeping only removals which leave
+ * the solution unique, until it reaches a target clue count; it is then graded. Several candidates are generated
+ * speculatively in parallel, the first one inside the band is returned and the rest are cancelled.
+ * <p>
+ * Clue count only loosely predicts difficulty, so the target is learned: candidates which come out too easy lower it,
+ * and ones which come out too hard raise it. The number of candidates raced at once also follows the recent hit rate,
+ * so that once most candidates fit the band, little work is thrown away.
+ * <p>
+ * Some bands are rare or slow to hit at some sizes, so each call gives up after a number of candidates or a deadline,
+ * whichever comes first.
+ */
+public class TargetedGenerator implements Generator {
+
+    private static final double HIT_RATE_SMOOTHING = 0.1;
+    private static final double TARGET_STEP = 1.5;
+    private static final int TARGET_JITTER = 2;
+    private static final int DEFAULT_MAX_ATTEMPTS = 1000;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Shared by every generator. Its threads are daemons and retire when idle, so it never needs shutting down.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "targeted-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int size;
+    private final Difficulty min;
+    private final Difficulty max;
+    private final int width;
+    private final int maxAttempts;
+    private final Duration timeout;
+    private final SymmetryGridFactory grids;
+    private final UniquenessChecker checker = new UniquenessChecker();
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    // Guarded by this
+    private double clueTarget;
+    private double hitRate = 0.5;
+
+    public TargetedGenerator(int size, Difficulty target) {
+        this(size, target, target, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TargetedGenerator(int size, Difficulty min, Difficulty max, int width) {
+        this(size, min, max, width, DEFAULT_MAX_ATTEMPTS, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param size        side length of the puzzles
+     * @param min         the easiest acceptable difficulty
+     * @param max         the hardest acceptable difficulty
+     * @param width       the most candidates to generate at once
+     * @param maxAttempts the most candidates to grade in one call to {@link #generate()}
+     * @param timeout     the longest one call to {@link #generate()} may take
+     * @throws IllegalArgumentException if the band can't be reached at this size
+     */
+    public TargetedGenerator(int size, Difficulty min, Difficulty max, int width, int maxAttempts, Duration timeout) {
+        if (size < 4 || Math.sqrt(size) % 1 != 0)
+            throw new IllegalArgumentException("Puzzle size must be a square number, 4 or more.");
+        if (min.compareTo(max) > 0)
+            throw new IllegalArgumentException("Minimum difficulty must not be harder than the maximum.");
+        if (min.compareTo(hardestReachable(size)) > 0)
+            throw new IllegalArgumentException(String.format("%dx%d puzzles are never harder than %s.",
+                    size, size, hardestReachable(size)));
+        if (width < 1)
+            throw new IllegalArgumentException("At least one candidate must be generated at a time.");
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("At least one attempt must be allowed.");
+        if (timeout.isNegative() || timeout.isZero())
+            throw new IllegalArgumentException("Timeout must be positive.");
+        this.size = size;
+        this.min = min;
+        this.max = max;
+        this.width = width;
+        this.maxAttempts = maxAttempts;
+        this.timeout = timeout;
+        this.grids = new SymmetryGridFactory(size);
+        this.clueTarget = initialClueTarget(size, min);
+    }
+
+    /**
+     * Even a 4x4 grid dug down as far as it will go can be finished with naked singles, so nothing there grades above
+     * EASY.
+     */
+    private static Difficulty hardestReachable(int size) {
+        return size == 4 ? Difficulty.EASY : Difficulty.EXPERT;
+    }
+
+    /**
+     * A rough starting point, from typical clue counts for each difficulty on a 9x9 grid. Harder targets dig as far as
+     * they can.
+     */
+    private static double initialClueTarget(int size, Difficulty min) {
+        final var fraction = switch (min) {
+            case EASY -> 0.45;
+            case MEDIUM -> 0.37;
+            case HARD -> 0.31;
+            case EXPERT -> 0;
+        };
+        return fraction * size * size;
+    }
+
+    /**
+     * @throws CancellationException if the calling thread is interrupted before a puzzle is found
+     * @throws IllegalStateException if no puzzle in the band is found within the attempt limit or the timeout
+     */
+    @Override
+    public Puzzle generate() {
+        final var deadline = System.nanoTime() + timeout.toNanos();
+        final var cs = new ExecutorCompletionService<Candidate>(EXECUTOR);
+        final var futures = new ArrayList<Future<Candidate>>();
+        for (int i = 0; i < speculativeWidth(); i++) {
+            futures.add(submit(cs));
+        }
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                final var done = cs.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null)
+                    throw new IllegalStateException(String.format("No %s puzzle was found within %d seconds.",
+                            describeBand(), timeout.toSeconds()));
+                final var candidate = done.get();
+                if (record(candidate)) return candidate.puzzle();
+                if (attempt >= maxAttempts)
+                    throw new IllegalStateException(String.format("No %s puzzle was found in %d attempts.",
+                            describeBand(), maxAttempts));
+                // Keep the number in flight in line with the current hit rate
+                final var inFlight = futures.stream().filter(future -> !future.isDone()).count();
+                for (var i = inFlight; i < speculativeWidth(); i++) {
+                    futures.add(submit(cs));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Puzzle generation was interrupted.");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private String describeBand() {
+        return min == max ? min.toString() : min + " to " + max;
+    }
+
+    /**
+     * @return the fraction of recent candidates which fell inside the band
+     */
+    public synchronized double getHitRate() {
+        return hitRate;
+    }
+
+    /**
+     * @return the number of clues candidates are currently dug down to
+     */
+    public synchronized double getClueTarget() {
+        return clueTarget;
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the cache shared by every candidate's uniqueness checks
+     */
+    public TranspositionCache getCache() {
+        return checker.getCache();
+    }
+
+    private Future<Candidate> submit(ExecutorCompletionService<Candidate> cs) {
+        final var rand = ThreadLocalRandom.current();
+        final int target;
+        synchronized (this) {
+            // A little jitter keeps exploring around the learned target
+            target = (int) Math.round(clueTarget) + rand.nextInt(-TARGET_JITTER, TARGET_JITTER + 1);
+        }
+        return cs.submit(() -> dig(Math.max(0, target)));
+    }
+
+    /**
+     * @return enough candidates that one is expected to hit the band, judging by the recent hit rate
+     */
+    private synchronized int speculativeWidth() {
+        return (int) Math.min(width, Math.ceil(1 / Math.max(hitRate, 1D / width)));
+    }
+
+    /**
+     * Learn from a graded candidate.
+     *
+     * @return true if the candidate is inside the band
+     */
+    private synchronized boolean record(Candidate candidate) {
+        attempts.increment();
+        final var tooEasy = candidate.difficulty().compareTo(min) < 0;
+        final var tooHard = candidate.difficulty().compareTo(max) > 0;
+        final var hit = !tooEasy && !tooHard;
+        hitRate += HIT_RATE_SMOOTHING * ((hit ? 1 : 0) - hitRate);
+
+        // Step harder when missing often, and settle down as the hit rate climbs
+        final var step = TARGET_STEP * (1 - hitRate);
+        if (tooEasy) clueTarget = Math.max(0, Math.min(clueTarget, candidate.clues()) - step);
+        if (tooHard) clueTarget = Math.min(size * size, Math.max(clueTarget, candidate.clues()) + step);
+        if (hit) hits.increment();
+        return hit;
+    }
+
+    /**
+     * Dig cells out of a fresh solved grid, keeping the solution unique, until the target clue count is reached or
+     * no more cells can be removed.
+     */
+    private Candidate dig(int target) {
+        final var solution = grids.next();
+        var puzzle = solution;
+        var clues = size * size;
+
+        final var cells = new ArrayList<>(Board.getCellPositions(size));
+        Collections.shuffle(cells, ThreadLocalRandom.current());
+        for (var cell : cells) {
+            if (clues <= target) break;
+            if (Thread.currentThread().isInterrupted())
+                throw new CancellationException("Candidate was cancelled.");
+            if (puzzle.getGrid()[cell.row()][cell.col()] == 0) continue;
+
+            final var partner = new Position(size - cell.row() - 1, size - cell.col() - 1);
+            final var dug = puzzle.with(0, cell).with(0, partner);
+            if (checker.isUnique(dug)) {
+                puzzle = dug;
+                clues -= partner.equals(cell) ? 1 : 2;
+            }
+        }
+
+        return new Candidate(new Puzzle(puzzle, solution), clues, DifficultyGrader.grade(puzzle));
+    }
+
+    private record Candidate(Puzzle puzzle, int clues, Difficulty difficulty) { }
+}
@@ -0,0 +1,8 @@
+package uk.fergcb.sudoku.hints;
+
+import uk.fergcb.sudoku.util.Position;
+
+/**
+ * The removal of a candidate value from a cell.
+ */
+public record Elimination(Position cell, int value) { }
@@ -0,0 +1,23 @@
+package uk.fergcb.sudoku.hints;
+
+import uk.fergcb.sudoku.util.Position;
+
+import java.util.List;
+
+/**
+ * A single logical deduction.
+ *
+ * @param technique    the technique that justifies the deduction
+ * @param cells        the cells the deduction is based on (for placements, the single cell to fill)
+ * @param value        the value to place, or the value being eliminated for pointing hints, or 0 for naked pairs
+ * @param eliminations the candidates which the deduction removes
+ */
+public record Hint(Technique technique, List<Position> cells, int value, List<Elimination> eliminations) {
+
+    /**
+     * @return true if this hint fills a cell, false if it only eliminates candidates
+     */
+    public boolean isPlacement() {
+        return technique == Technique.NAKED_SINGLE || technique == Technique.HIDDEN_SINGLE;
+    }
+}
@@ -0,0 +1,323 @@
+package uk.fergcb.sudoku.hints;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.constraints.ConstraintModel;
+import uk.fergcb.sudoku.util.Position;
+import uk.fergcb.sudoku.validation.ValidationType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds the next logical deduction for a board as it is being played.
+ * <p>
+ * The engine keeps a candidate bitmask for every cell (value {@code v} is bit {@code v - 1}) and updates it
+ * incrementally as values are placed, cleared or eliminated, instead of re-deriving it for every hint.
+ * The next hint is cached until the state changes, so repeated requests between moves are free.
+ * <p>
+ * The units come from the board's {@link ConstraintModel}, so variants with extra or irregular units (diagonals,
+ * jigsaw regions) get hints which respect them. Cage sums aren't reasoned about, so Killer boards are rejected rather
+ * than given hints which ignore half their rules.
+ */
+public class HintEngine {
+
+    private final ConstraintModel model;
+    private final int size;
+    private final int fullMask;
+    private final int[] values;
+    private final int[] candidates;
+
+    /**
+     * The cells of every unit, in the model's order.
+     */
+    private final int[][] units;
+    /**
+     * Whether each unit is a region (a box or jigsaw piece) rather than a line.
+     */
+    private final boolean[] regions;
+    /**
+     * The units each cell belongs to.
+     */
+    private final int[][] cellUnits;
+    /**
+     * The distinct cells sharing a unit with each cell.
+     */
+    private final int[][] peers;
+
+    private Optional<Hint> nextHint = null;
+
+    /**
+     * @throws IllegalArgumentException if the board's rules include cage sums
+     */
+    public HintEngine(Board board) {
+        this.model = board.getModel();
+        if (model.hasSums())
+            throw new IllegalArgumentException("Hints are not available for boards with cage sums.");
+        this.size = board.getSize();
+        this.fullMask = (1 << size) - 1;
+        this.values = new int[size * size];
+        this.candidates = new int[size * size];
+        this.units = slices(model.getUnitOffsets(), model.getUnitCells());
+        this.cellUnits = slices(model.getCellUnitOffsets(), model.getCellUnits());
+        this.peers = slices(model.getPeerOffsets(), model.getPeers());
+        this.regions = new boolean[units.length];
+        for (int unit = 0; unit < units.length; unit++) {
+            final var type = model.getUnitType(unit);
+            regions[unit] = type == ValidationType.BOX || type == ValidationType.JIGSAW;
+        }
+
+        final var grid = board.getGrid();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                values[r * size + c] = grid[r][c];
+            }
+        }
+        for (int cell = 0; cell < values.length; cell++) {
+            recomputeCandidates(cell);
+        }
+    }
+
+    /**
+     * Unpack a table stored as offsets into a flat array.
+     */
+    private static int[][] slices(int[] offsets, int[] flat) {
+        final var result = new int[offsets.length - 1][];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Arrays.copyOfRange(flat, offsets[i], offsets[i + 1]);
+        }
+        return result;
+    }
+
+    public Board toBoard() {
+        final var grid = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(values, r * size, grid[r], 0, size);
+        }
+        return Board.from(grid, model);
+    }
+
+    /**
+     * @param pos the cell
+     * @return the values still possible in the cell (empty if the cell is filled)
+     */
+    public List<Integer> getCandidates(Position pos) {
+        final var mask = candidates[index(pos)];
+        final var result = new ArrayList<Integer>(Integer.bitCount(mask));
+        for (int v = 1; v <= size; v++) {
+            if ((mask & bit(v)) != 0) result.add(v);
+        }
+        return result;
+    }
+
+    /**
+     * Record a value being placed by the player (or by applying a hint).
+     */
+    public void place(Position pos, int value) {
+        if (value < 1 || value > size)
+            throw new IllegalArgumentException(String.format("Value %d is out of range 1-%d.", value, size));
+        final var cell = index(pos);
+        if (values[cell] != 0) clear(pos);
+        values[cell] = value;
+        candidates[cell] = 0;
+        final var mask = ~bit(value);
+        for (var peer : peers[cell]) {
+            candidates[peer] &= mask;
+        }
+        nextHint = null;
+    }
+
+    /**
+     * Record a value being removed by the player.
+     * <p>
+     * The candidates of the cell and its peers are rebuilt from the filled cells, which forgets any eliminations
+     * previously applied to them.
+     */
+    public void clear(Position pos) {
+        final var cell = index(pos);
+        if (values[cell] == 0) return;
+        values[cell] = 0;
+        recomputeCandidates(cell);
+        for (var peer : peers[cell]) {
+            recomputeCandidates(peer);
+        }
+        nextHint = null;
+    }
+
+    /**
+     * Remove a candidate from a cell.
+     */
+    public void eliminate(Position pos, int value) {
+        candidates[index(pos)] &= ~bit(value);
+        nextHint = null;
+    }
+
+    /**
+     * Apply a hint's placement or eliminations to the state.
+     */
+    public void apply(Hint hint) {
+        if (hint.isPlacement()) {
+            place(hint.cells().getFirst(), hint.value());
+            return;
+        }
+        for (var elimination : hint.eliminations()) {
+            eliminate(elimination.cell(), elimination.value());
+        }
+    }
+
+    /**
+     * Find the cheapest available deduction.
+     *
+     * @return the hint, or empty if the board is full, contradictory, or beyond the techniques known to the engine
+     */
+    public Optional<Hint> nextHint() {
+        if (nextHint == null) nextHint = findHint();
+        return nextHint;
+    }
+
+    private Optional<Hint> findHint() {
+        for (int cell = 0; cell < values.length; cell++) {
+            // A contradiction - no deduction is sound from here
+            if (values[cell] == 0 && candidates[cell] == 0) return Optional.empty();
+        }
+
+        var hint = findNakedSingle();
+        if (hint == null) hint = findHiddenSingle();
+        if (hint == null) hint = findPointing();
+        if (hint == null) hint = findNakedPair();
+        return Optional.ofNullable(hint);
+    }
+
+    private Hint findNakedSingle() {
+        for (int cell = 0; cell < values.length; cell++) {
+            if (values[cell] == 0 && Integer.bitCount(candidates[cell]) == 1) {
+                return placement(Technique.NAKED_SINGLE, cell, Integer.numberOfTrailingZeros(candidates[cell]) + 1);
+            }
+        }
+        return null;
+    }
+
+    private Hint findHiddenSingle() {
+        for (var unit : units) {
+            // Only a unit covering every value must contain each one
+            if (unit.length != size) continue;
+            // Values appearing as a candidate once in the unit, and more than once
+            var once = 0;
+            var many = 0;
+            for (var cell : unit) {
+                many |= once & candidates[cell];
+                once |= candidates[cell];
+            }
+            final var hidden = once & ~many;
+            if (hidden == 0) continue;
+            final var value = Integer.numberOfTrailingZeros(hidden) + 1;
+            for (var cell : unit) {
+                if ((candidates[cell] & hidden & -hidden) != 0) return placement(Technique.HIDDEN_SINGLE, cell, value);
+            }
+        }
+        return null;
+    }
+
+    private Hint findPointing() {
+        for (int region = 0; region < units.length; region++) {
+            if (!regions[region]) continue;
+            for (int value = 1; value <= size; value++) {
+                final var bit = bit(value);
+                final var cells = new ArrayList<Integer>();
+                for (var cell : units[region]) {
+                    if ((candidates[cell] & bit) != 0) cells.add(cell);
+                }
+                if (cells.size() < 2) continue;
+
+                // Any line holding every candidate cell of the region must get the value from the region
+                for (var line : cellUnits[cells.getFirst()]) {
+                    if (regions[line] || !containsAll(line, cells)) continue;
+                    final var eliminations = new ArrayList<Elimination>();
+                    for (var cell : units[line]) {
+                        if ((candidates[cell] & bit) != 0 && !contains(cellUnits[cell], region))
+                            eliminations.add(new Elimination(position(cell), value));
+                    }
+                    if (!eliminations.isEmpty())
+                        return new Hint(Technique.POINTING, positions(cells), value, eliminations);
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean containsAll(int unit, List<Integer> cells) {
+        for (var cell : cells) {
+            if (!contains(cellUnits[cell], unit)) return false;
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] array, int value) {
+        for (var element : array) {
+            if (element == value) return true;
+        }
+        return false;
+    }
+
+    private Hint findNakedPair() {
+        for (var unit : units) {
+            for (int i = 0; i < unit.length; i++) {
+                final var pair = candidates[unit[i]];
+                if (Integer.bitCount(pair) != 2) continue;
+                for (int j = i + 1; j < unit.length; j++) {
+                    if (candidates[unit[j]] != pair) continue;
+
+                    final var eliminations = new ArrayList<Elimination>();
+                    for (var cell : unit) {
+                        if (cell == unit[i] || cell == unit[j]) continue;
+                        final var removed = candidates[cell] & pair;
+                        for (int value = 1; value <= size; value++) {
+                            if ((removed & bit(value)) != 0) eliminations.add(new Elimination(position(cell), value));
+                        }
+                    }
+                    if (!eliminations.isEmpty())
+                        return new Hint(Technique.NAKED_PAIR, positions(List.of(unit[i], unit[j])), 0, eliminations);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Hint placement(Technique technique, int cell, int value) {
+        final var bit = bit(value);
+        final var eliminations = new ArrayList<Elimination>();
+        for (var peer : peers[cell]) {
+            if ((candidates[peer] & bit) != 0) eliminations.add(new Elimination(position(peer), value));
+        }
+        return new Hint(technique, List.of(position(cell)), value, eliminations);
+    }
+
+    private void recomputeCandidates(int cell) {
+        if (values[cell] != 0) {
+            candidates[cell] = 0;
+            return;
+        }
+        var used = 0;
+        for (var peer : peers[cell]) {
+            if (values[peer] != 0) used |= bit(values[peer]);
+        }
+        candidates[cell] = ~used & fullMask;
+    }
+
+    private int index(Position pos) {
+        return pos.row() * size + pos.col();
+    }
+
+    private Position position(int cell) {
+        return new Position(cell / size, cell % size);
+    }
+
+    private List<Position> positions(List<Integer> cells) {
+        return cells.stream().map(this::position).toList();
+    }
+
+    private static int bit(int value) {
+        return 1 << (value - 1);
+    }
+}
@@ -0,0 +1,24 @@
+package uk.fergcb.sudoku.hints;
+
+/**
+ * The logical deductions the {@link HintEngine} can find, in the order they are looked for (cheapest first).
+ */
+public enum Technique {
+    /**
+     * A cell has only one remaining candidate.
+     */
+    NAKED_SINGLE,
+    /**
+     * A value has only one possible cell left in a row, column, box or other full unit.
+     */
+    HIDDEN_SINGLE,
+    /**
+     * A value's candidates within a box (or jigsaw region) all lie on one row, column or diagonal, so it can be
+     * eliminated from the rest of that line.
+     */
+    POINTING,
+    /**
+     * Two cells in a unit share the same two candidates, so those values can be eliminated from the rest of it.
+     */
+    NAKED_PAIR
+}
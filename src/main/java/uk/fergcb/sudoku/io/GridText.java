@@ -0,0 +1,48 @@
+package uk.fergcb.sudoku.io;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.util.Base36;
+
+/**
+ * Converts grids to and from strings of cells, read left to right, top to bottom.
+ */
+final class GridText {
+
+    private GridText() {
+        throw new IllegalStateException("GridText is a static utility class and cannot be instantiated");
+    }
+
+    /**
+     * @param cells the cells, with {@code .} or {@code 0} for empty ones and base 36 digits for larger values
+     * @return the grid
+     * @throws IllegalArgumentException if the text isn't a valid grid
+     */
+    static int[][] parse(String cells) {
+        final var size = (int) Math.round(Math.sqrt(cells.length()));
+        final var boxSize = (int) Math.round(Math.sqrt(size));
+        if (size * size != cells.length() || boxSize * boxSize != size || size < 4)
+            throw new IllegalArgumentException(
+                    String.format("%d cells is not a square grid with square boxes.", cells.length()));
+
+        final var grid = new int[size][size];
+        for (int i = 0; i < cells.length(); i++) {
+            final var ch = cells.charAt(i);
+            final var value = ch == '.' ? 0 : Base36.fromDigit(ch);
+            if (value < 0 || value > size)
+                throw new IllegalArgumentException(
+                        String.format("Invalid cell '%c' at position %d.", ch, i + 1));
+            grid[i / size][i % size] = value;
+        }
+        return grid;
+    }
+
+    static String format(Board board, char emptyCell) {
+        final var sb = new StringBuilder(board.getSize() * board.getSize());
+        for (var row : board.getGrid()) {
+            for (var value : row) {
+                sb.append(value == 0 ? emptyCell : Base36.toDigit(value));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package uk.fergcb.sudoku.io;
+
+/**
+ * A record which couldn't be imported.
+ *
+ * @param line    the (1-based) line the record started on
+ * @param text    the offending text
+ * @param message why it was rejected
+ */
+public record ImportError(long line, String text, String message) { }
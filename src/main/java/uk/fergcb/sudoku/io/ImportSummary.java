@@ -0,0 +1,8 @@
+package uk.fergcb.sudoku.io;
+
+/**
+ * @param records  the number of records found
+ * @param imported the number successfully imported
+ * @param rejected the number reported as errors
+ */
+public record ImportSummary(long records, long imported, long rejected) { }
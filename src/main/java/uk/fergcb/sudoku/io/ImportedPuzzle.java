@@ -0,0 +1,15 @@
+package uk.fergcb.sudoku.io;
+
+import uk.fergcb.sudoku.Board;
+
+import java.util.Map;
+
+/**
+ * A puzzle read from a collection.
+ *
+ * @param line     the (1-based) line the puzzle started on
+ * @param puzzle   the puzzle
+ * @param solution the solution given alongside it, or null if there wasn't one
+ * @param metadata any other fields stored with the puzzle, in their original order
+ */
+public record ImportedPuzzle(long line, Board puzzle, Board solution, Map<String, String> metadata) { }
@@ -0,0 +1,122 @@
+package uk.fergcb.sudoku.io;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.generation.Puzzle;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams puzzles out to a collection file, one at a time.
+ * <p>
+ * For {@link PuzzleFormat#CSV} the columns are fixed by the first puzzle written: {@code puzzle}, then
+ * {@code solution} if it had one, then its metadata keys. Later puzzles leave missing columns empty and drop any
+ * extra metadata. For {@link PuzzleFormat#SDK}, single-letter metadata keys are written as {@code #X value} lines and
+ * puzzles are separated by blank lines; the line formats keep a {@code comment} entry after the grid.
+ */
+public class PuzzleExporter implements Closeable {
+
+    private final BufferedWriter out;
+    private final PuzzleFormat format;
+    private List<String> columns = null;
+    private boolean first = true;
+
+    /**
+     * @param out    where to write (closed along with this exporter)
+     * @param format the format to write
+     */
+    public PuzzleExporter(Writer out, PuzzleFormat format) {
+        this.out = out instanceof BufferedWriter buffered ? buffered : new BufferedWriter(out);
+        this.format = format;
+    }
+
+    public void write(Board puzzle) {
+        write(puzzle, null, Map.of());
+    }
+
+    public void write(Puzzle puzzle) {
+        write(puzzle.puzzle(), puzzle.solution(), Map.of());
+    }
+
+    public void write(ImportedPuzzle puzzle) {
+        write(puzzle.puzzle(), puzzle.solution(), puzzle.metadata());
+    }
+
+    /**
+     * @param puzzle   the puzzle
+     * @param solution its solution, or null (only written to CSV)
+     * @param metadata extra fields to keep alongside the puzzle, where the format allows
+     */
+    public void write(Board puzzle, Board solution, Map<String, String> metadata) {
+        try {
+            switch (format) {
+                case LINE, SDM -> {
+                    out.write(GridText.format(puzzle, format.getEmptyCell()));
+                    final var comment = metadata.get("comment");
+                    if (comment != null && !comment.isBlank()) out.write(" " + comment);
+                    out.newLine();
+                }
+                case SDK -> writeSdk(puzzle, metadata);
+                case CSV -> writeCsv(puzzle, solution, metadata);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        first = false;
+    }
+
+    private void writeSdk(Board puzzle, Map<String, String> metadata) throws IOException {
+        if (!first) out.newLine();
+        for (var entry : metadata.entrySet()) {
+            if (entry.getKey().length() != 1) continue;
+            out.write("#" + entry.getKey() + " " + entry.getValue());
+            out.newLine();
+        }
+        final var size = puzzle.getSize();
+        final var cells = GridText.format(puzzle, format.getEmptyCell());
+        for (int r = 0; r < size; r++) {
+            out.write(cells, r * size, size);
+            out.newLine();
+        }
+    }
+
+    private void writeCsv(Board puzzle, Board solution, Map<String, String> metadata) throws IOException {
+        if (columns == null) {
+            columns = new ArrayList<>();
+            columns.add("puzzle");
+            if (solution != null) columns.add("solution");
+            columns.addAll(metadata.keySet());
+            out.write(Csv.join(columns));
+            out.newLine();
+        }
+        final var fields = new ArrayList<String>(columns.size());
+        for (var column : columns) {
+            fields.add(switch (column) {
+                case "puzzle" -> GridText.format(puzzle, format.getEmptyCell());
+                case "solution" -> solution == null ? "" : GridText.format(solution, format.getEmptyCell());
+                default -> metadata.getOrDefault(column, "");
+            });
+        }
+        out.write(Csv.join(fields));
+        out.newLine();
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
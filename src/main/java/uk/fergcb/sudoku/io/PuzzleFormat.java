@@ -0,0 +1,58 @@
+package uk.fergcb.sudoku.io;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The puzzle collection formats which can be imported and exported.
+ */
+public enum PuzzleFormat {
+    /**
+     * One puzzle per line, as a single string of cells read left to right, top to bottom, with {@code .} or
+     * {@code 0} for empty cells. Anything after the grid (separated by whitespace) is kept as a comment, and lines
+     * starting with {@code #} are skipped.
+     */
+    LINE('.'),
+    /**
+     * SadMan Software's single-puzzle format: one row of the grid per line, with {@code .} for empty cells, preceded
+     * by optional {@code #X value} metadata lines (e.g. {@code #A} author, {@code #D} description). Several grids
+     * separated by blank lines are read as several puzzles.
+     */
+    SDK('.'),
+    /**
+     * SadMan Software's multi-puzzle format: one puzzle per line, like {@link #LINE}, conventionally written with
+     * {@code 0} for empty cells.
+     */
+    SDM('0'),
+    /**
+     * Comma-separated values with a header row. The puzzle is read from a {@code puzzle} (or {@code quizzes})
+     * column, an optional solution from a {@code solution} (or {@code solutions}) column, and every other column
+     * is kept as metadata. Every non-blank line after the header is a row; {@code #} doesn't start a comment.
+     */
+    CSV('0');
+
+    private final char emptyCell;
+
+    PuzzleFormat(char emptyCell) {
+        this.emptyCell = emptyCell;
+    }
+
+    /**
+     * @return the character written for empty cells
+     */
+    public char getEmptyCell() {
+        return emptyCell;
+    }
+
+    /**
+     * Guess the format of a file from its extension ({@code .sdk}, {@code .sdm}, {@code .csv}, anything else is
+     * read as {@link #LINE}).
+     */
+    public static PuzzleFormat fromFileName(Path path) {
+        final var name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".sdk")) return SDK;
+        if (name.endsWith(".sdm")) return SDM;
+        if (name.endsWith(".csv")) return CSV;
+        return LINE;
+    }
+}
@@ -0,0 +1,330 @@
+package uk.fergcb.sudoku.io;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.validation.ThreadPoolValidator;
+import uk.fergcb.sudoku.validation.ValidationError;
+import uk.fergcb.sudoku.validation.Validator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Streams puzzles in from a collection file.
+ * <p>
+ * The calling thread only splits the input into raw records (a line, or a block of lines for {@link PuzzleFormat#SDK})
+ * and batches them into chunks; parsing and validation happen on a pool of worker threads. At most a fixed number of
+ * chunks are in flight at once, so memory stays bounded however large the file is, and chunks are handed back in
+ * file order, so puzzles and errors reach the callbacks in the order they appear. A malformed or invalid record is
+ * reported to the error callback and the import carries on.
+ */
+public class PuzzleImporter {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private static final List<String> PUZZLE_COLUMNS = List.of("puzzle", "quizzes", "quiz");
+    private static final List<String> SOLUTION_COLUMNS = List.of("solution", "solutions");
+
+    private final PuzzleFormat format;
+    private final Validator validator;
+    private final int threads;
+    private final int chunkSize;
+
+    public PuzzleImporter(PuzzleFormat format) {
+        this(format, new ThreadPoolValidator(), Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param format    the format to read
+     * @param validator checks every puzzle (and solution) on the way in
+     * @param threads   the number of parsing threads
+     * @param chunkSize the number of records parsed as one batch
+     */
+    public PuzzleImporter(PuzzleFormat format, Validator validator, int threads, int chunkSize) {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one thread is required.");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunks must hold at least one record.");
+        this.format = format;
+        this.validator = validator;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportSummary importFrom(Path file, Consumer<ImportedPuzzle> puzzles, Consumer<ImportError> errors) {
+        try (var reader = Files.newBufferedReader(file)) {
+            return importFrom(reader, puzzles, errors);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read every record from the input.
+     *
+     * @param input   the collection to read (not closed)
+     * @param puzzles receives each puzzle, in order, on the calling thread
+     * @param errors  receives each rejected record, in order, on the calling thread
+     * @return how many records were imported and rejected
+     * @throws CancellationException if the calling thread is interrupted
+     */
+    public ImportSummary importFrom(Reader input, Consumer<ImportedPuzzle> puzzles, Consumer<ImportError> errors) {
+        final var reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        final var maxInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+        final var pending = new ArrayDeque<Future<List<Outcome>>>();
+        final var counts = new long[2];
+
+        try (var pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final var thread = new Thread(runnable, "puzzle-importer");
+            thread.setDaemon(true);
+            return thread;
+        })) {
+            try {
+                final var splitter = new RecordSplitter(reader);
+                var chunk = new ArrayList<RawRecord>(chunkSize);
+                for (var record = splitter.next(); record != null; record = splitter.next()) {
+                    chunk.add(record);
+                    if (chunk.size() < chunkSize) continue;
+                    final var full = chunk;
+                    final var header = splitter.header;
+                    pending.add(pool.submit(() -> parseChunk(full, header)));
+                    chunk = new ArrayList<>(chunkSize);
+                    while (pending.size() >= maxInFlight) deliver(pending.poll(), puzzles, errors, counts);
+                }
+                if (!chunk.isEmpty()) {
+                    final var last = chunk;
+                    final var header = splitter.header;
+                    pending.add(pool.submit(() -> parseChunk(last, header)));
+                }
+                while (!pending.isEmpty()) deliver(pending.poll(), puzzles, errors, counts);
+            } finally {
+                // Only reached with chunks still pending if the import failed part way through
+                pending.forEach(future -> future.cancel(true));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ImportSummary(counts[0] + counts[1], counts[0], counts[1]);
+    }
+
+    private static void deliver(Future<List<Outcome>> chunk, Consumer<ImportedPuzzle> puzzles,
+                                Consumer<ImportError> errors, long[] counts) {
+        try {
+            for (var outcome : chunk.get()) {
+                if (outcome.puzzle() != null) {
+                    counts[0]++;
+                    puzzles.accept(outcome.puzzle());
+                } else {
+                    counts[1]++;
+                    errors.accept(outcome.error());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import was interrupted.");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private List<Outcome> parseChunk(List<RawRecord> records, List<String> header) {
+        final var outcomes = new ArrayList<Outcome>(records.size());
+        for (var record : records) {
+            try {
+                outcomes.add(new Outcome(parse(record, header), null));
+            } catch (IllegalArgumentException e) {
+                outcomes.add(new Outcome(null, new ImportError(record.line(), record.text(), e.getMessage())));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record is malformed or its puzzle is invalid
+     */
+    private ImportedPuzzle parse(RawRecord record, List<String> header) {
+        final var metadata = new LinkedHashMap<String, String>();
+        final String puzzleText;
+        String solutionText = null;
+
+        switch (format) {
+            case LINE, SDM -> {
+                final var fields = record.text().strip().split("\\s+", 2);
+                puzzleText = fields[0];
+                if (fields.length > 1) metadata.put("comment", fields[1]);
+            }
+            case SDK -> {
+                final var grid = new StringBuilder();
+                for (var line : record.lines()) {
+                    if (line.startsWith("#")) {
+                        final var tag = line.length() > 1 ? line.substring(1, 2) : "";
+                        metadata.put(tag, line.length() > 2 ? line.substring(2).strip() : "");
+                    } else {
+                        grid.append(line.strip());
+                    }
+                }
+                puzzleText = grid.toString();
+            }
+            case CSV -> {
+                final var fields = Csv.split(record.text());
+                if (fields.size() != header.size())
+                    throw new IllegalArgumentException(
+                            String.format("Expected %d fields but found %d.", header.size(), fields.size()));
+                String puzzleField = null;
+                for (int i = 0; i < fields.size(); i++) {
+                    final var column = header.get(i);
+                    if (puzzleField == null && PUZZLE_COLUMNS.contains(column)) puzzleField = fields.get(i);
+                    else if (solutionText == null && SOLUTION_COLUMNS.contains(column)) solutionText = fields.get(i);
+                    else metadata.put(column, fields.get(i));
+                }
+                if (puzzleField == null)
+                    throw new IllegalArgumentException("No puzzle column in the header.");
+                puzzleText = puzzleField;
+            }
+            default -> throw new IllegalStateException("Unknown format " + format);
+        }
+
+        final var puzzle = toBoard(puzzleText, "Puzzle");
+        Board solution = null;
+        if (solutionText != null && !solutionText.isEmpty()) {
+            solution = toBoard(solutionText, "Solution");
+            checkSolution(puzzle, solution);
+        }
+        return new ImportedPuzzle(record.line(), puzzle, solution,
+                metadata.isEmpty() ? Map.of() : Collections.unmodifiableMap(metadata));
+    }
+
+    private Board toBoard(String text, String what) {
+        final var board = Board.from(GridText.parse(text));
+        final var result = validator.validate(board);
+        if (!result.isValid())
+            throw new IllegalArgumentException(what + " breaks the rules: " + describe(result.getErrors()));
+        return board;
+    }
+
+    private static void checkSolution(Board puzzle, Board solution) {
+        if (solution.getSize() != puzzle.getSize())
+            throw new IllegalArgumentException("Solution is a different size to the puzzle.");
+        for (int r = 0; r < puzzle.getSize(); r++) {
+            for (int c = 0; c < puzzle.getSize(); c++) {
+                final var given = puzzle.getGrid()[r][c];
+                final var solved = solution.getGrid()[r][c];
+                if (solved == 0)
+                    throw new IllegalArgumentException("Solution is incomplete.");
+                if (given != 0 && given != solved)
+                    throw new IllegalArgumentException(
+                            String.format("Solution disagrees with the puzzle at r%dc%d.", r + 1, c + 1));
+            }
+        }
+    }
+
+    private static String describe(List<ValidationError> errors) {
+        return errors.stream()
+                .map(error -> error.type() + " conflict at " + error.culprits().stream()
+                        .map(pos -> String.format("r%dc%d", pos.row() + 1, pos.col() + 1))
+                        .collect(Collectors.joining(", ")))
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * The unparsed text of one record.
+     */
+    private record RawRecord(long line, List<String> lines) {
+        String text() {
+            return String.join("\n", lines);
+        }
+    }
+
+    /**
+     * Exactly one of the fields is set.
+     */
+    private record Outcome(ImportedPuzzle puzzle, ImportError error) { }
+
+    /**
+     * Splits the input into raw records, without parsing them. This is the only part of an import which runs on the
+     * calling thread, so it is kept as cheap as possible.
+     */
+    private class RecordSplitter {
+        private final BufferedReader reader;
+        private long lineNumber = 0;
+        private List<String> header = List.of();
+
+        private RecordSplitter(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the next record, or null at the end of the input
+         */
+        private RawRecord next() throws IOException {
+            return switch (format) {
+                case LINE, SDM -> nextLine(true);
+                case CSV -> nextCsvLine();
+                case SDK -> nextBlock();
+            };
+        }
+
+        /**
+         * @param skipComments whether lines starting with {@code #} are comments rather than records
+         */
+        private RawRecord nextLine(boolean skipComments) throws IOException {
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank() || skipComments && line.startsWith("#")) continue;
+                return new RawRecord(lineNumber, List.of(line));
+            }
+            return null;
+        }
+
+        private RawRecord nextCsvLine() throws IOException {
+            if (lineNumber == 0) {
+                final var first = nextLine(false);
+                if (first == null) return null;
+                header = Csv.split(first.text()).stream()
+                        .map(column -> column.strip().toLowerCase(Locale.ROOT))
+                        .toList();
+            }
+            return nextLine(false);
+        }
+
+        /**
+         * Collect metadata lines and grid rows up to the next blank line (or the end of the grid).
+         */
+        private RawRecord nextBlock() throws IOException {
+            final var lines = new ArrayList<String>();
+            var start = 0L;
+            var rows = 0;
+            var size = 0;
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    if (lines.isEmpty()) continue;
+                    break;
+                }
+                if (lines.isEmpty()) start = lineNumber;
+                lines.add(line);
+                if (line.startsWith("#")) continue;
+                if (rows++ == 0) size = line.strip().length();
+                if (rows == size) break;
+            }
+            return lines.isEmpty() ? null : new RawRecord(start, lines);
+        }
+    }
+}
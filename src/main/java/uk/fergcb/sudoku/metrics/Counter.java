@@ -0,0 +1,65 @@
+package uk.fergcb.sudoku.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count.
+ * <p>
+ * Backed by a {@link LongAdder}, which spreads concurrent increments over separate cells, so counting from every core
+ * at once doesn't contend on a single memory location.
+ */
+public final class Counter implements Metric {
+
+    private static final long RATE_SAMPLE_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final String help;
+    private final LongAdder count = new LongAdder();
+
+    // Guarded by this; only touched when a rate is read, never when counting
+    private long sampleTime = System.nanoTime();
+    private long sampleCount = 0;
+    private double rate = 0;
+
+    Counter(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getHelp() {
+        return help;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    /**
+     * @return the average increase per second between the last two samples; samples are taken at most once a second,
+     * when the rate is read
+     */
+    public synchronized double ratePerSecond() {
+        final var now = System.nanoTime();
+        if (now - sampleTime >= RATE_SAMPLE_NANOS) {
+            final var current = count.sum();
+            rate = (current - sampleCount) * 1e9 / (now - sampleTime);
+            sampleTime = now;
+            sampleCount = current;
+        }
+        return rate;
+    }
+}
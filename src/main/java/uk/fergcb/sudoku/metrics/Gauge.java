@@ -0,0 +1,33 @@
+package uk.fergcb.sudoku.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value read on demand, e.g. a queue depth or a cache hit ratio.
+ */
+public final class Gauge implements Metric {
+
+    private final String name;
+    private final String help;
+    private final DoubleSupplier value;
+
+    Gauge(String name, String help, DoubleSupplier value) {
+        this.name = name;
+        this.help = help;
+        this.value = value;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getHelp() {
+        return help;
+    }
+
+    public double get() {
+        return value.getAsDouble();
+    }
+}
@@ -0,0 +1,50 @@
+package uk.fergcb.sudoku.metrics;
+
+import uk.fergcb.sudoku.solving.TranspositionCache;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Registers gauges which watch long-lived shared resources.
+ * <p>
+ * Each gauge holds on to the resource it watches, so only monitor things which live as long as the registry. Metric
+ * names are shared, so monitoring a second resource under the same prefix keeps reporting the first.
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+        throw new IllegalStateException("Instrumentation is a static utility class and cannot be instantiated");
+    }
+
+    /**
+     * Watch a pool's queue depths, thread activity and work stealing.
+     *
+     * @param prefix e.g. {@code sudoku_solver_pool}
+     */
+    public static void monitor(MetricsRegistry registry, String prefix, ForkJoinPool pool) {
+        registry.gauge(prefix + "_parallelism", "Target parallelism of the pool.", pool::getParallelism);
+        registry.gauge(prefix + "_threads", "Worker threads started but not yet terminated.", pool::getPoolSize);
+        registry.gauge(prefix + "_active_threads", "Workers currently stealing or running tasks.",
+                pool::getActiveThreadCount);
+        registry.gauge(prefix + "_running_threads", "Workers currently running tasks and not blocked.",
+                pool::getRunningThreadCount);
+        registry.gauge(prefix + "_queued_tasks", "Tasks waiting in worker queues (an estimate).",
+                pool::getQueuedTaskCount);
+        registry.gauge(prefix + "_queued_submissions", "Submissions waiting to be picked up by a worker (an estimate).",
+                pool::getQueuedSubmissionCount);
+        registry.gauge(prefix + "_steals", "Tasks stolen from one worker's queue by another, since the pool started.",
+                pool::getStealCount);
+    }
+
+    /**
+     * Watch how often a cache saves a search.
+     *
+     * @param prefix e.g. {@code sudoku_uniqueness_cache}
+     */
+    public static void monitor(MetricsRegistry registry, String prefix, TranspositionCache cache) {
+        registry.gauge(prefix + "_hits", "Lookups which found a cached outcome.", cache::getHits);
+        registry.gauge(prefix + "_misses", "Lookups which found nothing.", cache::getMisses);
+        registry.gauge(prefix + "_hit_ratio", "Fraction of lookups which found a cached outcome.", cache::getHitRatio);
+        registry.gauge(prefix + "_capacity", "Number of entries the cache can hold.", cache::getCapacity);
+    }
+}
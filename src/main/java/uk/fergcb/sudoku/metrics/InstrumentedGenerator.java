@@ -0,0 +1,37 @@
+package uk.fergcb.sudoku.metrics;
+
+import uk.fergcb.sudoku.generation.Generator;
+import uk.fergcb.sudoku.generation.Puzzle;
+
+/**
+ * Wraps a generator, timing every puzzle generated.
+ */
+public class InstrumentedGenerator implements Generator {
+
+    private final Generator generator;
+    private final Timer latency;
+    private final Counter failures;
+
+    public InstrumentedGenerator(Generator generator) {
+        this(generator, MetricsRegistry.global());
+    }
+
+    public InstrumentedGenerator(Generator generator, MetricsRegistry registry) {
+        this.generator = generator;
+        this.latency = registry.timer("sudoku_generate_seconds", "Time taken to generate a puzzle.");
+        this.failures = registry.counter("sudoku_generations_failed_total", "Generations which threw an exception.");
+    }
+
+    @Override
+    public Puzzle generate() {
+        final var start = System.nanoTime();
+        try {
+            return generator.generate();
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package uk.fergcb.sudoku.metrics;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.solving.SolveResult;
+import uk.fergcb.sudoku.solving.Solver;
+
+/**
+ * Wraps a solver, timing every solve and counting how it ended.
+ */
+public class InstrumentedSolver implements Solver {
+
+    private final Solver solver;
+    private final Timer latency;
+    private final Counter solved;
+    private final Counter deadEnds;
+    private final Counter failures;
+
+    public InstrumentedSolver(Solver solver) {
+        this(solver, MetricsRegistry.global());
+    }
+
+    public InstrumentedSolver(Solver solver, MetricsRegistry registry) {
+        this.solver = solver;
+        this.latency = registry.timer("sudoku_solve_seconds", "Time taken to solve a board.");
+        this.solved = registry.counter("sudoku_solves_solved_total", "Solves which found at least one solution.");
+        this.deadEnds = registry.counter("sudoku_solves_dead_end_total", "Solves which found no solution.");
+        this.failures = registry.counter("sudoku_solves_failed_total", "Solves which threw an exception.");
+    }
+
+    @Override
+    public SolveResult solve(Board board) {
+        final var start = System.nanoTime();
+        try {
+            final var result = solver.solve(board);
+            (result.hasSolutions() ? solved : deadEnds).increment();
+            return result;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+}
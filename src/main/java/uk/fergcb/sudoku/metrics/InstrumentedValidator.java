@@ -0,0 +1,37 @@
+package uk.fergcb.sudoku.metrics;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.validation.ValidationResult;
+import uk.fergcb.sudoku.validation.Validator;
+
+/**
+ * Wraps a validator, timing every validation and counting the boards found invalid.
+ */
+public class InstrumentedValidator implements Validator {
+
+    private final Validator validator;
+    private final Timer latency;
+    private final Counter invalid;
+
+    public InstrumentedValidator(Validator validator) {
+        this(validator, MetricsRegistry.global());
+    }
+
+    public InstrumentedValidator(Validator validator, MetricsRegistry registry) {
+        this.validator = validator;
+        this.latency = registry.timer("sudoku_validate_seconds", "Time taken to validate a board.");
+        this.invalid = registry.counter("sudoku_validations_invalid_total", "Validations which found a conflict.");
+    }
+
+    @Override
+    public ValidationResult validate(Board board) {
+        final var start = System.nanoTime();
+        try {
+            final var result = validator.validate(board);
+            if (!result.isValid()) invalid.increment();
+            return result;
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package uk.fergcb.sudoku.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Publishes every metric in a registry as an MXBean, under {@code uk.fergcb.sudoku:type=<kind>,name=<name>}, including
+ * metrics registered after the exporter is installed.
+ */
+public final class JmxExporter {
+
+    private static final String DOMAIN = "uk.fergcb.sudoku";
+
+    private JmxExporter() {
+        throw new IllegalStateException("JmxExporter is a static utility class and cannot be instantiated");
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+
+        double getRatePerSecond();
+    }
+
+    public interface GaugeMXBean {
+        double getValue();
+    }
+
+    public interface TimerMXBean {
+        long getCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+    }
+
+    /**
+     * Export a registry through the platform MBean server.
+     */
+    public static void install(MetricsRegistry registry) {
+        install(registry, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public static void install(MetricsRegistry registry, MBeanServer server) {
+        registry.addListener(metric -> register(server, metric));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Class<T> mxBeanInterface(Metric metric) {
+        return (Class<T>) switch (metric) {
+            case Counter counter -> CounterMXBean.class;
+            case Gauge gauge -> GaugeMXBean.class;
+            case Timer timer -> TimerMXBean.class;
+        };
+    }
+
+    private static void register(MBeanServer server, Metric metric) {
+        final Object bean = switch (metric) {
+            case Counter counter -> new CounterMXBean() {
+                public long getCount() {
+                    return counter.get();
+                }
+
+                public double getRatePerSecond() {
+                    return counter.ratePerSecond();
+                }
+            };
+            case Gauge gauge -> (GaugeMXBean) gauge::get;
+            case Timer timer -> new TimerMXBean() {
+                public long getCount() {
+                    return timer.getCount();
+                }
+
+                public double getMeanMillis() {
+                    return timer.snapshot().getMean() / 1e6;
+                }
+
+                public double getP50Millis() {
+                    return timer.snapshot().getValueAtPercentile(50) / 1e6;
+                }
+
+                public double getP90Millis() {
+                    return timer.snapshot().getValueAtPercentile(90) / 1e6;
+                }
+
+                public double getP99Millis() {
+                    return timer.snapshot().getValueAtPercentile(99) / 1e6;
+                }
+
+                public double getMaxMillis() {
+                    return timer.snapshot().getMax() / 1e6;
+                }
+            };
+        };
+        try {
+            final var name = new ObjectName(String.format("%s:type=%s,name=%s",
+                    DOMAIN, metric.getClass().getSimpleName(), ObjectName.quote(metric.getName())));
+            server.registerMBean(new StandardMBean(bean, mxBeanInterface(metric), true), name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Already exported, e.g. by an earlier install
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register MBean for " + metric.getName(), e);
+        }
+    }
+}
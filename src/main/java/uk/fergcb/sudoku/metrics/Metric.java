@@ -0,0 +1,16 @@
+package uk.fergcb.sudoku.metrics;
+
+/**
+ * A named value tracked by a {@link MetricsRegistry}.
+ */
+public sealed interface Metric permits Counter, Gauge, Timer {
+    /**
+     * @return the metric's name, in Prometheus style (e.g. {@code sudoku_solves_total})
+     */
+    String getName();
+
+    /**
+     * @return a one-line description of the metric
+     */
+    String getHelp();
+}
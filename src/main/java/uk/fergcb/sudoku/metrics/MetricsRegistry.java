@@ -0,0 +1,115 @@
+package uk.fergcb.sudoku.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * A set of named metrics, which can be scraped as Prometheus-style plain text or exported over JMX.
+ * <p>
+ * Metrics are created on first use and shared by name, so instrumented code can look up its counters once (e.g. in
+ * a static field) and record into them without any further lookups. The library's own instrumentation records into
+ * {@link #global()}.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private final List<Consumer<Metric>> listeners = new CopyOnWriteArrayList<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name, String help) {
+        return register(name, Counter.class, () -> new Counter(name, help));
+    }
+
+    public Timer timer(String name, String help) {
+        return register(name, Timer.class, () -> new Timer(name, help));
+    }
+
+    /**
+     * @param value read whenever the registry is scraped; must be cheap and thread-safe
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier value) {
+        return register(name, Gauge.class, () -> new Gauge(name, help, value));
+    }
+
+    public Collection<Metric> getMetrics() {
+        return metrics.values();
+    }
+
+    /**
+     * @param listener called with every metric already registered, then with each new one as it is registered
+     */
+    public void addListener(Consumer<Metric> listener) {
+        listeners.add(listener);
+        metrics.values().forEach(listener);
+    }
+
+    private <T extends Metric> T register(String name, Class<T> type, Supplier<T> factory) {
+        if (!NAME.matcher(name).matches())
+            throw new IllegalArgumentException(String.format("Invalid metric name '%s'.", name));
+        final var created = new ArrayList<Metric>(1);
+        final var metric = metrics.computeIfAbsent(name, key -> {
+            final var fresh = factory.get();
+            created.add(fresh);
+            return fresh;
+        });
+        if (!type.isInstance(metric))
+            throw new IllegalArgumentException(
+                    String.format("Metric '%s' is already registered as a %s.", name, metric.getClass().getSimpleName()));
+        created.forEach(fresh -> listeners.forEach(listener -> listener.accept(fresh)));
+        return type.cast(metric);
+    }
+
+    /**
+     * @return every metric in the Prometheus text exposition format; timers are summaries in seconds
+     */
+    public String scrape() {
+        final var sb = new StringBuilder();
+        for (var metric : metrics.values()) {
+            sb.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+            switch (metric) {
+                case Counter counter -> {
+                    sb.append("# TYPE ").append(counter.getName()).append(" counter\n");
+                    sb.append(counter.getName()).append(' ').append(counter.get()).append('\n');
+                }
+                case Gauge gauge -> {
+                    sb.append("# TYPE ").append(gauge.getName()).append(" gauge\n");
+                    sb.append(gauge.getName()).append(' ').append(format(gauge.get())).append('\n');
+                }
+                case Timer timer -> {
+                    final var snapshot = timer.snapshot();
+                    sb.append("# TYPE ").append(timer.getName()).append(" summary\n");
+                    for (var quantile : QUANTILES) {
+                        final var value = snapshot.getCount() == 0 ? Double.NaN
+                                : snapshot.getValueAtPercentile(quantile * 100) / 1e9;
+                        sb.append(timer.getName()).append("{quantile=\"").append(quantile).append("\"} ")
+                                .append(format(value)).append('\n');
+                    }
+                    sb.append(timer.getName()).append("_sum ").append(format(timer.getTotalNanos() / 1e9)).append('\n');
+                    sb.append(timer.getName()).append("_count ").append(timer.getCount()).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        return String.format(Locale.ROOT, "%s", value);
+    }
+}
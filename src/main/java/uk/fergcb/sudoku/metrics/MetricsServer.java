@@ -0,0 +1,78 @@
+package uk.fergcb.sudoku.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a registry's metrics as plain text from {@code GET /metrics}, for scraping.
+ * <p>
+ * Uses the JDK's built-in HTTP server on a single daemon thread, so it adds no dependencies and won't keep a worker
+ * process alive by itself.
+ */
+public class MetricsServer implements Closeable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * @param registry the metrics to serve
+     * @param address  where to listen, e.g. {@code new InetSocketAddress("127.0.0.1", 9404)}; port 0 picks a free one
+     * @return the running server
+     */
+    public static MetricsServer start(MetricsRegistry registry, InetSocketAddress address) throws IOException {
+        final var server = HttpServer.create(address, 0);
+        final var executor = Executors.newSingleThreadExecutor(runnable -> {
+            final var thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", exchange -> handle(registry, exchange));
+        server.start();
+        return new MetricsServer(server, executor);
+    }
+
+    private static void handle(MetricsRegistry registry, HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final var body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * @return the address the server is listening on (useful when started on port 0)
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,28 @@
+package uk.fergcb.sudoku.metrics;
+
+/**
+ * Metrics recorded from inside the search loops themselves, into the {@link MetricsRegistry#global() global}
+ * registry.
+ * <p>
+ * The in-place searches keep their own node counts in plain fields and add them here in batches (at the end of a
+ * search, or every few thousand nodes), so counting costs the inner loop nothing. The exception is
+ * {@code ForkJoinSolver}, where almost every node is a separate task, possibly on another worker: it adds one per
+ * task, which the striped {@link Counter} keeps cheap next to the board each task allocates.
+ */
+public final class SolverMetrics {
+
+    /**
+     * Search tree nodes visited by every solver, uniqueness checker and solution counter.
+     */
+    public static final Counter NODES = MetricsRegistry.global()
+            .counter("sudoku_solver_nodes_total", "Search tree nodes visited by all solvers.");
+
+    static {
+        MetricsRegistry.global().gauge("sudoku_solver_nodes_per_second",
+                "Search tree nodes visited per second, over the last sample.", NODES::ratePerSecond);
+    }
+
+    private SolverMetrics() {
+        throw new IllegalStateException("SolverMetrics is a static utility class and cannot be instantiated");
+    }
+}
@@ -0,0 +1,41 @@
+package uk.fergcb.sudoku.metrics;
+
+import uk.fergcb.sudoku.bench.LatencyHistogram;
+
+/**
+ * A {@link LatencyHistogram} which can be recorded into from many threads at once.
+ * <p>
+ * Values go into one of several stripes, picked by thread, each with its own lock; with more stripes than cores, a
+ * thread almost never finds its stripe's lock held. Reads merge every stripe into a fresh snapshot.
+ */
+final class StripedHistogram {
+
+    private final LatencyHistogram[] stripes;
+    private final int mask;
+
+    StripedHistogram() {
+        final var target = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        final var count = Integer.highestOneBit(target - 1) << 1;
+        this.stripes = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) stripes[i] = new LatencyHistogram();
+        this.mask = count - 1;
+    }
+
+    void record(long value) {
+        // Thread ids are sequential, so spread them before masking
+        final var stripe = stripes[(int) (Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L >>> 40) & mask];
+        synchronized (stripe) {
+            stripe.record(value);
+        }
+    }
+
+    LatencyHistogram snapshot() {
+        final var merged = new LatencyHistogram();
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                merged.merge(stripe);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,66 @@
+package uk.fergcb.sudoku.metrics;
+
+import uk.fergcb.sudoku.bench.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counts operations and records the distribution of their durations, in nanoseconds.
+ */
+public final class Timer implements Metric {
+
+    private final String name;
+    private final String help;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final StripedHistogram histogram = new StripedHistogram();
+
+    Timer(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getHelp() {
+        return help;
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        histogram.record(nanos);
+    }
+
+    /**
+     * Run an operation, recording how long it took (whether or not it succeeded).
+     */
+    public <T> T time(Supplier<T> operation) {
+        final var start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return a copy of the durations recorded so far
+     */
+    public LatencyHistogram snapshot() {
+        return histogram.snapshot();
+    }
+}
@@ -0,0 +1,101 @@
+package uk.fergcb.sudoku.solving;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.metrics.SolverMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A single-threaded depth-first solver over a {@link CandidateGrid}.
+ * <p>
+ * The cell heuristic and seed change the order in which the search tree is explored, but not which solutions exist,
+ * so differently configured instances make good candidates for racing against each other.
+ * The search gives up (returning a dead end) if the calling thread is interrupted.
+ */
+public class BacktrackingSolver implements Solver {
+
+    private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
+    private final CellHeuristic heuristic;
+    private final long seed;
+    private final boolean singleSolution;
+
+    public BacktrackingSolver() {
+        this(CellHeuristic.MINIMUM_REMAINING_VALUES, new Random().nextLong(), true);
+    }
+
+    /**
+     * @param heuristic      how to choose the next cell to branch on
+     * @param seed           seeds the random choices made while searching (cell ties, value order)
+     * @param singleSolution whether to stop at the first solution found
+     */
+    public BacktrackingSolver(CellHeuristic heuristic, long seed, boolean singleSolution) {
+        this.heuristic = heuristic;
+        this.seed = seed;
+        this.singleSolution = singleSolution;
+    }
+
+    public CellHeuristic getHeuristic() {
+        return heuristic;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public SolveResult solve(Board board) {
+        final var grid = CandidateGrid.of(board);
+        if (!grid.isConsistent()) return SolveResult.deadEnd();
+
+        final var search = new Search(grid, new Random(seed));
+        search.run();
+        SolverMetrics.NODES.add(search.nodes);
+        if (search.solutions.isEmpty()) return SolveResult.deadEnd();
+        return new SolveResult.SolutionFound(search.solutions);
+    }
+
+    private class Search {
+        private final CandidateGrid grid;
+        private final Random rand;
+        private final List<Board> solutions = new ArrayList<>();
+        private long nodes = 0;
+        private boolean stopped = false;
+
+        private Search(CandidateGrid grid, Random rand) {
+            this.grid = grid;
+            this.rand = rand;
+        }
+
+        private void run() {
+            // Base case - we've been asked to give up
+            if ((++nodes & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                solutions.clear();
+                stopped = true;
+                return;
+            }
+
+            // Base case - the board is full, we've found a solution
+            final var cell = grid.selectCell(heuristic, rand);
+            if (cell < 0) {
+                solutions.add(grid.toBoard());
+                stopped = singleSolution;
+                return;
+            }
+
+            // Try each candidate, starting from a random one so that different seeds explore in different orders
+            final var candidates = grid.candidates(cell);
+            final var size = grid.getSize();
+            final var offset = rand.nextInt(size);
+            for (int i = 0; i < size && !stopped; i++) {
+                final var value = (offset + i) % size + 1;
+                if ((candidates & CandidateGrid.bit(value)) == 0) continue;
+                grid.place(cell, value);
+                run();
+                grid.clear(cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package uk.fergcb.sudoku.solving;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.metrics.SolverMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solves large batches of boards, keeping every core busy whether the batch is made of many easy boards or a few
+ * hard ones.
+ * <p>
+ * Whole boards are the unit of scheduling: each is solved by a sequential in-place search on one worker, with no
+ * forking or cross-thread signalling, which is where most of the time would go on a small board. A search only splits
+ * once it has run for a while without finishing (a straggler), and only when there is no other work queued for idle
+ * workers to pick up: it then forks its remaining sibling branches, which idle workers steal. Each forked branch
+ * starts its own budget, so a pathological board keeps splitting for as long as there are idle workers to help.
+ * <p>
+ * A bounded number of boards are in flight at once and results are returned in input order, so arbitrarily long
+ * inputs can be streamed through in constant memory.
+ */
+public class BatchSolver implements Solver {
+
+    private static final long DEFAULT_SPLIT_NODES = 1 << 14;
+    private static final int STOP_CHECK_MASK = 0xFFF;
+    private static final int BOARDS_IN_FLIGHT_PER_THREAD = 32;
+
+    private final boolean singleSolution;
+    private final ForkJoinPool pool;
+    private final long splitNodes;
+    private final LongAdder splits = new LongAdder();
+
+    /**
+     * Solve on a pool with a worker per processor, shared by every solver created this way.
+     */
+    public BatchSolver() {
+        this(true, DefaultPool.INSTANCE, DEFAULT_SPLIT_NODES);
+    }
+
+    /**
+     * @param singleSolution whether to stop each board at its first solution
+     * @param pool           the pool to solve on; it is shared, not shut down by the solver
+     * @param splitNodes     the number of nodes a search may visit before it counts as a straggler and may split
+     */
+    public BatchSolver(boolean singleSolution, ForkJoinPool pool, long splitNodes) {
+        if (splitNodes < 1)
+            throw new IllegalArgumentException("Split threshold must be at least 1 node.");
+        this.singleSolution = singleSolution;
+        this.pool = pool;
+        this.splitNodes = splitNodes;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the number of times a straggling search has forked its remaining branches
+     */
+    public long getSplits() {
+        return splits.sum();
+    }
+
+    /**
+     * Solve a single board, splitting it across the pool if it turns out to be hard.
+     *
+     * @throws CancellationException if the calling thread is interrupted before the board is solved
+     */
+    @Override
+    public SolveResult solve(Board board) {
+        final var results = new OrderedResults(List.of(board).iterator());
+        try {
+            return results.next();
+        } finally {
+            results.cancel();
+        }
+    }
+
+    /**
+     * @return a result for each board, in the same order
+     * @throws CancellationException if the calling thread is interrupted before every board is solved
+     */
+    @Override
+    public List<SolveResult> solveAll(Iterable<Board> boards) {
+        final var results = new OrderedResults(boards.iterator());
+        try {
+            final var list = new ArrayList<SolveResult>();
+            results.forEachRemaining(list::add);
+            return list;
+        } finally {
+            results.cancel();
+        }
+    }
+
+    /**
+     * Boards are pulled from the input a bounded distance ahead of the results being consumed. Closing the returned
+     * stream abandons any boards still being solved.
+     *
+     * @return a result for each board, in the same order
+     */
+    @Override
+    public Stream<SolveResult> solveAll(Stream<Board> boards) {
+        final var results = new OrderedResults(boards.iterator());
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::cancel)
+                .onClose(boards::close);
+    }
+
+    /**
+     * Submits boards a bounded distance ahead of the one being waited on, and hands back results in input order.
+     */
+    private class OrderedResults implements Iterator<SolveResult> {
+        private final Iterator<Board> boards;
+        private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+        private final int maxInFlight = pool.getParallelism() * BOARDS_IN_FLIGHT_PER_THREAD;
+
+        private OrderedResults(Iterator<Board> boards) {
+            this.boards = boards;
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public SolveResult next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            final var next = pending.poll();
+            try {
+                return next.task().get();
+            } catch (InterruptedException e) {
+                next.flag().stop();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Batch solve was interrupted.");
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        private void fill() {
+            while (pending.size() < maxInFlight && boards.hasNext()) {
+                final var board = boards.next();
+                final var flag = new StopFlag();
+                pending.add(new Pending(pool.submit(new RootTask(board, flag)), flag));
+            }
+        }
+
+        /**
+         * Give up on every board still in flight.
+         */
+        private void cancel() {
+            pending.forEach(next -> next.flag().stop());
+            pending.clear();
+        }
+    }
+
+    private record Pending(ForkJoinTask<SolveResult> task, StopFlag flag) { }
+
+    /**
+     * Shared by every task searching the same board, so that one finding a solution stops the rest. Only read every
+     * few thousand nodes, and only written once per board.
+     */
+    private static class StopFlag {
+        private volatile boolean stopped = false;
+
+        private boolean isStopped() {
+            return stopped;
+        }
+
+        private void stop() {
+            stopped = true;
+        }
+    }
+
+    private class RootTask extends RecursiveTask<SolveResult> {
+        private final Board board;
+        private final StopFlag flag;
+
+        private RootTask(Board board, StopFlag flag) {
+            this.board = board;
+            this.flag = flag;
+        }
+
+        @Override
+        protected SolveResult compute() {
+            final var grid = CandidateGrid.of(board);
+            if (!grid.isConsistent()) return SolveResult.deadEnd();
+            final var solutions = new SearchTask(grid, flag, ThreadLocalRandom.current().nextLong()).compute();
+            if (solutions.isEmpty()) return SolveResult.deadEnd();
+            return new SolveResult.SolutionFound(solutions);
+        }
+    }
+
+    /**
+     * An in-place depth-first search of one subtree, which forks off untried branches if it runs too long.
+     * <p>
+     * Each level of the search is recorded as a frame, so that a split can hand off the branches nearest the root,
+     * which are the largest pieces of remaining work, rather than whichever ones happen to be next.
+     */
+    private class SearchTask extends RecursiveTask<List<Board>> {
+        private final CandidateGrid grid;
+        private final StopFlag flag;
+        private final Random rand;
+        private final List<Board> solutions = new ArrayList<>();
+        private final List<SearchTask> forked = new ArrayList<>();
+        private long nodes = 0;
+        private long nextSplit = splitNodes;
+        private boolean stopped = false;
+
+        // The cell, candidates and value order being tried at each level, and how far through them it has got
+        private final int[] cells;
+        private final int[] candidates;
+        private final int[] offsets;
+        private final int[] tried;
+        private final int[] ends;
+
+        private SearchTask(CandidateGrid grid, StopFlag flag, long seed) {
+            this.grid = grid;
+            this.flag = flag;
+            this.rand = new Random(seed);
+            final var levels = grid.getEmptyCount() + 1;
+            this.cells = new int[levels];
+            this.candidates = new int[levels];
+            this.offsets = new int[levels];
+            this.tried = new int[levels];
+            this.ends = new int[levels];
+        }
+
+        @Override
+        protected List<Board> compute() {
+            try {
+                if (!flag.isStopped()) run(0);
+            } finally {
+                SolverMetrics.NODES.add(nodes);
+            }
+            for (var branch : forked) {
+                final var found = branch.join();
+                if (!singleSolution || solutions.isEmpty()) solutions.addAll(found);
+            }
+            if (singleSolution && solutions.size() > 1) return List.of(solutions.getFirst());
+            return solutions;
+        }
+
+        private void run(int depth) {
+            // Base case - another task has found a solution, or the board was abandoned
+            if ((++nodes & STOP_CHECK_MASK) == 0 && flag.isStopped()) {
+                stopped = true;
+                return;
+            }
+            if (nodes >= nextSplit) {
+                nextSplit = nodes + splitNodes;
+                if (shouldSplit()) split(depth);
+            }
+
+            // Base case - the board is full, we've found a solution
+            final var cell = grid.selectCell(CellHeuristic.MINIMUM_REMAINING_VALUES, rand);
+            if (cell < 0) {
+                solutions.add(grid.toBoard());
+                if (singleSolution) {
+                    stopped = true;
+                    flag.stop();
+                }
+                return;
+            }
+
+            // Try each candidate, starting from a random one; a split may cut the range short while we're below it
+            final var size = grid.getSize();
+            cells[depth] = cell;
+            candidates[depth] = grid.candidates(cell);
+            offsets[depth] = rand.nextInt(size);
+            ends[depth] = size;
+            for (int i = 0; i < ends[depth] && !stopped; i++) {
+                final var value = (offsets[depth] + i) % size + 1;
+                if ((candidates[depth] & CandidateGrid.bit(value)) == 0) continue;
+                tried[depth] = i;
+                grid.place(cell, value);
+                run(depth + 1);
+                grid.clear(cell);
+            }
+        }
+
+        /**
+         * Only split when no other boards are waiting and this worker hasn't already got work queued for thieves.
+         */
+        private boolean shouldSplit() {
+            return pool.getQueuedSubmissionCount() == 0 && getSurplusQueuedTaskCount() <= 0;
+        }
+
+        /**
+         * Fork the untried candidates of the shallowest level which has any, each as its own task, and stop this
+         * search from trying them itself.
+         *
+         * @param depth the level currently being searched
+         */
+        private void split(int depth) {
+            final var size = grid.getSize();
+            for (int d = 0; d < depth; d++) {
+                CandidateGrid base = null;
+                for (int i = tried[d] + 1; i < ends[d]; i++) {
+                    final var value = (offsets[d] + i) % size + 1;
+                    if ((candidates[d] & CandidateGrid.bit(value)) == 0) continue;
+                    if (base == null) {
+                        // Rewind a copy of the grid to how it was at level d
+                        base = grid.copy();
+                        for (int k = depth - 1; k >= d; k--) base.clear(cells[k]);
+                    }
+                    final var child = base.copy();
+                    child.place(cells[d], value);
+                    final var branch = new SearchTask(child, flag, rand.nextLong());
+                    forked.add(branch);
+                    branch.fork();
+                }
+                if (base != null) {
+                    ends[d] = tried[d] + 1;
+                    splits.increment();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Created on first use, and never shut down: its workers are daemon threads, so it doesn't keep the JVM alive.
+     */
+    private static final class DefaultPool {
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,286 @@
+package uk.fergcb.sudoku.solving;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.constraints.ConstraintModel;
+import uk.fergcb.sudoku.util.Zobrist;
+
+import java.util.Random;
+
+/**
+ * A mutable, flattened copy of a board which tracks the values used in each unit of its {@link ConstraintModel} as
+ * bitmasks, so that the candidates for a cell can be found by OR-ing the masks of the few units it belongs to.
+ * <p>
+ * Cells are addressed by index ({@code row * size + col}); value {@code v} is represented by bit {@code v - 1}.
+ * Unlike {@link Board}, placing and clearing values is done in place, which makes this suitable for backtracking
+ * searches that would otherwise copy the whole grid at every step. The grid's {@link Zobrist} hash is maintained as
+ * values are placed and cleared, and always equals that of the equivalent {@link Board}.
+ * <p>
+ * Units with a sum (Killer cages) also track their running total, and only offer candidates which could still make
+ * it up. Models without sums skip that bookkeeping entirely.
+ */
+public class CandidateGrid {
+
+    private final int size;
+    private final ConstraintModel model;
+    private final int fullMask;
+    private final int[] cellUnitOffsets;
+    private final int[] cellUnits;
+    private final int unitsPerCell;
+    private final int[] paddedCellUnits;
+    private final boolean hasSums;
+    private final int[] cells;
+    private final int[] unitMasks;
+    private final int[] unitTotals;
+    private final int[] unitEmpty;
+    private int emptyCount;
+    private long hash;
+    private boolean consistent = true;
+
+    private CandidateGrid(ConstraintModel model) {
+        this.size = model.getSize();
+        this.model = model;
+        this.fullMask = (int) ((1L << size) - 1);
+        this.cellUnitOffsets = model.getCellUnitOffsets();
+        this.cellUnits = model.getCellUnits();
+        this.unitsPerCell = model.getUnitsPerCell();
+        this.paddedCellUnits = model.getPaddedCellUnits();
+        this.hasSums = model.hasSums();
+        this.cells = new int[size * size];
+        // One extra, always empty, mask for the padding in paddedCellUnits
+        this.unitMasks = new int[model.getUnitCount() + 1];
+        this.unitTotals = hasSums ? new int[model.getUnitCount()] : null;
+        this.unitEmpty = hasSums ? new int[model.getUnitCount()] : null;
+        if (hasSums) {
+            for (int unit = 0; unit < unitEmpty.length; unit++) {
+                unitEmpty[unit] = model.getUnitOffsets()[unit + 1] - model.getUnitOffsets()[unit];
+            }
+        }
+        this.emptyCount = size * size;
+    }
+
+    private CandidateGrid(CandidateGrid other) {
+        this.size = other.size;
+        this.model = other.model;
+        this.fullMask = other.fullMask;
+        this.cellUnitOffsets = other.cellUnitOffsets;
+        this.cellUnits = other.cellUnits;
+        this.unitsPerCell = other.unitsPerCell;
+        this.paddedCellUnits = other.paddedCellUnits;
+        this.hasSums = other.hasSums;
+        this.cells = other.cells.clone();
+        this.unitMasks = other.unitMasks.clone();
+        this.unitTotals = hasSums ? other.unitTotals.clone() : null;
+        this.unitEmpty = hasSums ? other.unitEmpty.clone() : null;
+        this.emptyCount = other.emptyCount;
+        this.hash = other.hash;
+        this.consistent = other.consistent;
+    }
+
+    public static CandidateGrid of(Board board) {
+        final var size = board.getSize();
+        if (size > 31)
+            throw new IllegalArgumentException("Candidate grids support boards of size 31 or less.");
+        final var candidateGrid = new CandidateGrid(board.getModel());
+        final var grid = board.getGrid();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                final var value = grid[r][c];
+                if (value == 0) continue;
+                final var cell = r * size + c;
+                if ((candidateGrid.used(cell) & bit(value)) != 0) candidateGrid.consistent = false;
+                candidateGrid.place(cell, value);
+            }
+        }
+        if (candidateGrid.hasSums) candidateGrid.checkSums();
+        return candidateGrid;
+    }
+
+    /**
+     * Mark the grid inconsistent if any unit's given values already overshoot its sum, or fill it without making it.
+     */
+    private void checkSums() {
+        for (int unit = 0; unit < unitTotals.length; unit++) {
+            final var sum = model.getUnitSum(unit);
+            if (sum == 0) continue;
+            if (unitTotals[unit] > sum || (unitEmpty[unit] == 0 && unitTotals[unit] != sum)) consistent = false;
+        }
+    }
+
+    public CandidateGrid copy() {
+        return new CandidateGrid(this);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public ConstraintModel getModel() {
+        return model;
+    }
+
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * @return false if the board this grid was built from already had a repeated value in a row, column or box
+     */
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * @return the Zobrist hash of the grid's current values
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public int get(int cell) {
+        return cells[cell];
+    }
+
+    public boolean isEmpty(int cell) {
+        return cells[cell] == 0;
+    }
+
+    public int row(int cell) {
+        return cell / size;
+    }
+
+    public int col(int cell) {
+        return cell % size;
+    }
+
+    /**
+     * @param cell the cell index
+     * @return a bitmask of the values which could be placed in the cell without breaking any of the model's rules
+     */
+    public int candidates(int cell) {
+        final var candidates = ~used(cell) & fullMask;
+        return hasSums && candidates != 0 ? sumCandidates(cell, candidates) : candidates;
+    }
+
+    private int used(int cell) {
+        final var start = cell * unitsPerCell;
+        // Classic cells are always in exactly three units, so give the JIT a straight line for the hot path
+        if (unitsPerCell == 3) {
+            return unitMasks[paddedCellUnits[start]]
+                    | unitMasks[paddedCellUnits[start + 1]]
+                    | unitMasks[paddedCellUnits[start + 2]];
+        }
+        var used = 0;
+        for (int i = start, end = start + unitsPerCell; i < end; i++) {
+            used |= unitMasks[paddedCellUnits[i]];
+        }
+        return used;
+    }
+
+    private int sumCandidates(int cell, int candidates) {
+        for (int i = cellUnitOffsets[cell], end = cellUnitOffsets[cell + 1]; i < end; i++) {
+            final var unit = cellUnits[i];
+            final var sum = model.getUnitSum(unit);
+            if (sum == 0) continue;
+            candidates = ConstraintModel.sumCandidates(candidates, sum - unitTotals[unit], unitEmpty[unit],
+                    ~unitMasks[unit] & fullMask);
+        }
+        return candidates;
+    }
+
+    /**
+     * Place a value in an empty cell. The caller is responsible for checking it is a candidate.
+     */
+    public void place(int cell, int value) {
+        final var bit = bit(value);
+        cells[cell] = value;
+        for (int i = cellUnitOffsets[cell], end = cellUnitOffsets[cell + 1]; i < end; i++) {
+            unitMasks[cellUnits[i]] |= bit;
+        }
+        if (hasSums) {
+            for (int i = cellUnitOffsets[cell], end = cellUnitOffsets[cell + 1]; i < end; i++) {
+                unitTotals[cellUnits[i]] += value;
+                unitEmpty[cellUnits[i]]--;
+            }
+        }
+        emptyCount--;
+        hash ^= Zobrist.key(size, cell, value);
+    }
+
+    /**
+     * Remove the value from a filled cell, undoing {@link #place(int, int)}.
+     */
+    public void clear(int cell) {
+        final var value = cells[cell];
+        final var bit = bit(value);
+        hash ^= Zobrist.key(size, cell, value);
+        cells[cell] = 0;
+        for (int i = cellUnitOffsets[cell], end = cellUnitOffsets[cell + 1]; i < end; i++) {
+            unitMasks[cellUnits[i]] &= ~bit;
+        }
+        if (hasSums) {
+            for (int i = cellUnitOffsets[cell], end = cellUnitOffsets[cell + 1]; i < end; i++) {
+                unitTotals[cellUnits[i]] -= value;
+                unitEmpty[cellUnits[i]]++;
+            }
+        }
+        emptyCount++;
+    }
+
+    /**
+     * Choose the next empty cell to branch on.
+     *
+     * @param heuristic how to choose the cell
+     * @param rand      source of randomness for {@link CellHeuristic#RANDOM} and for breaking ties
+     * @return the cell index, or -1 if the grid is full
+     */
+    public int selectCell(CellHeuristic heuristic, Random rand) {
+        if (emptyCount == 0) return -1;
+        return switch (heuristic) {
+            case FIRST_EMPTY -> nthEmpty(0);
+            case RANDOM -> nthEmpty(rand.nextInt(emptyCount));
+            case MINIMUM_REMAINING_VALUES -> mostConstrained(rand);
+        };
+    }
+
+    private int nthEmpty(int n) {
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == 0 && n-- == 0) return cell;
+        }
+        return -1;
+    }
+
+    private int mostConstrained(Random rand) {
+        var best = -1;
+        var bestCount = Integer.MAX_VALUE;
+        var ties = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) continue;
+            final var count = Integer.bitCount(candidates(cell));
+            if (count == 0) return cell;
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+                ties = 1;
+            } else if (count == bestCount && rand.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    public Board toBoard() {
+        final var grid = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(cells, r * size, grid[r], 0, size);
+        }
+        return Board.from(grid, model);
+    }
+
+    public static int bit(int value) {
+        return 1 << (value - 1);
+    }
+}
@@ -0,0 +1,19 @@
+package uk.fergcb.sudoku.solving;
+
+/**
+ * Strategies for choosing which empty cell to branch on next during a search.
+ */
+public enum CellHeuristic {
+    /**
+     * The first empty cell in row-major order.
+     */
+    FIRST_EMPTY,
+    /**
+     * An empty cell chosen uniformly at random.
+     */
+    RANDOM,
+    /**
+     * The empty cell with the fewest remaining candidates, ties broken at random.
+     */
+    MINIMUM_REMAINING_VALUES
+}
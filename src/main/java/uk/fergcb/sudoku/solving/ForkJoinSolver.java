@@ -1,33 +1,65 @@
 package uk.fergcb.sudoku.solving;
 
 import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.metrics.SolverMetrics;
 import uk.fergcb.sudoku.util.Position;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
 
 public class ForkJoinSolver implements Solver {
 
     private final boolean singleSolution;
+    private final ForkJoinPool pool;
 
     public ForkJoinSolver() {
         this(true);
     }
 
     public ForkJoinSolver(boolean singleSolution) {
+        this(singleSolution, null);
+    }
+
+    /**
+     * @param singleSolution whether to stop at the first solution found
+     * @param pool           a long-lived pool to run every solve on (not shut down by the solver), or null to create
+     *                       a fresh pool for each solve
+     */
+    public ForkJoinSolver(boolean singleSolution, ForkJoinPool pool) {
         this.singleSolution = singleSolution;
+        this.pool = pool;
     }
 
+    /**
+     * Solve the board on the shared pool, or on a fresh pool sized to the available processors if there isn't one.
+     * <p>
+     * If the calling thread is interrupted while waiting, the search is cancelled and a dead end is returned.
+     */
     @Override
     public SolveResult solve(Board board) {
+        if (pool != null) return solveOn(pool, board);
         final var processors = Runtime.getRuntime().availableProcessors();
-        try (var pool = new ForkJoinPool(processors)) {
-            final var task = new Task(board, singleSolution, new CancellationFlag());
-            return pool.invoke(task);
+        try (var fresh = new ForkJoinPool(processors)) {
+            return solveOn(fresh, board);
+        }
+    }
+
+    private SolveResult solveOn(ForkJoinPool pool, Board board) {
+        final var flag = new CancellationFlag();
+        final var task = pool.submit(new Task(board, singleSolution, flag));
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            flag.cancel();
+            Thread.currentThread().interrupt();
+            return SolveResult.deadEnd();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -71,6 +103,8 @@ public class ForkJoinSolver implements Solver {
 
         @Override
         protected SolveResult compute() {
+            // Every task is one node, and few are run inline, so there is no local tally to batch: count each one
+            SolverMetrics.NODES.increment();
             // Base case - another task wants us to give up
             if (flag.isCancelled()) return SolveResult.deadEnd();
             // Base case - the board is full, we've found a solution
@@ -0,0 +1,166 @@
+package uk.fergcb.sudoku.solving;
+
+import uk.fergcb.sudoku.Board;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Races several differently configured solvers against each other on the same board.
+ * <p>
+ * Every strategy performs a complete search, so whichever finishes first has a definitive answer: its result is
+ * returned and the others are cancelled by interruption. Wins are recorded per strategy, and when only some of the
+ * strategies can be raced at once ({@code width} is smaller than the portfolio), the strategies with the best win
+ * rates are preferred, with an occasional randomly chosen outsider so the others keep getting tried.
+ */
+public class PortfolioSolver implements Solver {
+
+    private static final double EXPLORATION_RATE = 0.1;
+    /**
+     * Shared by every portfolio. Its threads are daemons and retire when idle, so it never needs shutting down.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "portfolio-solver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Strategy> strategies;
+    private final int width;
+    private final LongAdder[] races;
+    private final LongAdder[] wins;
+
+    /**
+     * Race a default portfolio of backtracking solvers with varied heuristics and seeds, a few at a time.
+     *
+     * @param singleSolution whether to stop at the first solution found
+     */
+    public PortfolioSolver(boolean singleSolution) {
+        this(defaultStrategies(singleSolution));
+    }
+
+    private PortfolioSolver(List<Strategy> strategies) {
+        this(strategies, defaultWidth(strategies.size()));
+    }
+
+    /**
+     * @param strategies the solvers to race
+     * @param width      the maximum number of strategies to run at once for each board
+     */
+    public PortfolioSolver(List<Strategy> strategies, int width) {
+        if (strategies.isEmpty())
+            throw new IllegalArgumentException("A portfolio must contain at least one strategy.");
+        if (width < 1)
+            throw new IllegalArgumentException("Portfolio width must be at least 1.");
+        this.strategies = List.copyOf(strategies);
+        this.width = Math.min(width, strategies.size());
+        this.races = IntStream.range(0, strategies.size()).mapToObj(i -> new LongAdder()).toArray(LongAdder[]::new);
+        this.wins = IntStream.range(0, strategies.size()).mapToObj(i -> new LongAdder()).toArray(LongAdder[]::new);
+    }
+
+    /**
+     * @return half the portfolio (rounding up), but no more than there are cores, so that races stay cheap and the win
+     * rates decide which strategies are worth running
+     */
+    public static int defaultWidth(int strategies) {
+        final var half = (strategies + 1) / 2;
+        return Math.max(1, Math.min(half, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public static List<Strategy> defaultStrategies(boolean singleSolution) {
+        final var rand = ThreadLocalRandom.current();
+        return List.of(
+                new Strategy("mrv-a", new BacktrackingSolver(CellHeuristic.MINIMUM_REMAINING_VALUES, rand.nextLong(), singleSolution)),
+                new Strategy("mrv-b", new BacktrackingSolver(CellHeuristic.MINIMUM_REMAINING_VALUES, rand.nextLong(), singleSolution)),
+                new Strategy("mrv-c", new BacktrackingSolver(CellHeuristic.MINIMUM_REMAINING_VALUES, rand.nextLong(), singleSolution)),
+                new Strategy("first-empty", new BacktrackingSolver(CellHeuristic.FIRST_EMPTY, rand.nextLong(), singleSolution)),
+                new Strategy("random", new BacktrackingSolver(CellHeuristic.RANDOM, rand.nextLong(), singleSolution))
+        );
+    }
+
+    /**
+     * @throws CancellationException if the calling thread is interrupted before any strategy finishes
+     */
+    @Override
+    public SolveResult solve(Board board) {
+        final var entrants = selectEntrants();
+        final var cs = new ExecutorCompletionService<SolveResult>(EXECUTOR);
+        final var futures = new ArrayList<Future<SolveResult>>();
+        final var indexOf = new HashMap<Future<SolveResult>, Integer>();
+        for (var i : entrants) {
+            races[i].increment();
+            final var solver = strategies.get(i).solver();
+            final var future = cs.submit(() -> solver.solve(board));
+            futures.add(future);
+            indexOf.put(future, i);
+        }
+
+        RuntimeException failure = null;
+        try {
+            for (int i = 0; i < entrants.size(); i++) {
+                final var done = cs.take();
+                try {
+                    final var result = done.get();
+                    wins[indexOf.get(done)].increment();
+                    return result;
+                } catch (ExecutionException e) {
+                    // One strategy failing shouldn't lose the race for the others
+                    failure = new RuntimeException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Portfolio solve was interrupted.");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        throw failure;
+    }
+
+    /**
+     * Choose which strategies to race: all of them if they fit, otherwise those with the best win rates so far,
+     * occasionally swapping the last place for a randomly chosen outsider.
+     */
+    private List<Integer> selectEntrants() {
+        final var all = IntStream.range(0, strategies.size()).boxed().toList();
+        if (width == strategies.size()) return all;
+
+        final var ranked = new ArrayList<>(all);
+        ranked.sort(Comparator.comparingDouble(this::winRate).reversed());
+        final var rand = ThreadLocalRandom.current();
+        if (rand.nextDouble() < EXPLORATION_RATE) {
+            final var outsider = width + rand.nextInt(ranked.size() - width);
+            ranked.set(width - 1, ranked.get(outsider));
+        }
+        return ranked.subList(0, width);
+    }
+
+    private double winRate(int strategy) {
+        // Laplace smoothing, so untried strategies start at an even chance
+        return (wins[strategy].sum() + 1D) / (races[strategy].sum() + 2D);
+    }
+
+    /**
+     * @return the race and win counts of each strategy so far
+     */
+    public List<StrategyStats> getStatistics() {
+        return IntStream.range(0, strategies.size())
+                .mapToObj(i -> new StrategyStats(strategies.get(i).name(), races[i].sum(), wins[i].sum()))
+                .toList();
+    }
+
+    public record Strategy(String name, Solver solver) { }
+
+    public record StrategyStats(String name, long races, long wins) { }
+}
@@ -0,0 +1,328 @@
+package uk.fergcb.sudoku.solving;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.metrics.SolverMetrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Counts the solutions of a board exactly, without ever materialising them.
+ * <p>
+ * The top of the search tree is expanded breadth-first into a deterministic list of units (prefixes of
+ * assignments), enough to keep every core busy, and each unit is then counted by an in-place depth-first search on
+ * its own {@link CandidateGrid}, allocating nothing per solution. Optionally, progress is reported periodically, and
+ * each finished unit is appended to a checkpoint file so that an interrupted count can be resumed where it left off.
+ */
+public class SolutionCounter {
+
+    /**
+     * Fixed rather than scaled to the parallelism, so that a checkpoint can be resumed on any machine: 64 units per
+     * thread on 64 cores.
+     */
+    private static final int UNIT_TARGET = 1 << 12;
+    private static final int FLUSH_MASK = 0xFFF;
+
+    private final int parallelism;
+    private final Duration progressInterval;
+    private final Consumer<Progress> progressListener;
+    private final Path checkpoint;
+
+    public SolutionCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SolutionCounter(int parallelism) {
+        this(parallelism, null, null, null);
+    }
+
+    private SolutionCounter(int parallelism, Duration progressInterval, Consumer<Progress> progressListener,
+                            Path checkpoint) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        this.parallelism = parallelism;
+        this.progressInterval = progressInterval;
+        this.progressListener = progressListener;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @param interval how often to report progress
+     * @param listener receives progress reports (on a background thread)
+     * @return a counter which reports its progress
+     */
+    public SolutionCounter withProgress(Duration interval, Consumer<Progress> listener) {
+        return new SolutionCounter(parallelism, interval, listener, checkpoint);
+    }
+
+    /**
+     * @param file where to record finished units; if it already holds a checkpoint for the same board, the count
+     *             resumes from it, and if it holds anything else the count fails rather than overwrite it
+     * @return a counter which checkpoints its progress
+     */
+    public SolutionCounter withCheckpoint(Path file) {
+        return new SolutionCounter(parallelism, progressInterval, progressListener, file);
+    }
+
+    /**
+     * Count the solutions of a board.
+     *
+     * @param board the board
+     * @return the number of solutions
+     * @throws CancellationException if the calling thread is interrupted before the count is finished
+     * @throws IllegalStateException  if the checkpoint file holds a checkpoint for a different count
+     * @throws ArithmeticException    if there are more solutions than fit in a {@code long}
+     */
+    public long count(Board board) {
+        final var grid = CandidateGrid.of(board);
+        if (!grid.isConsistent()) return 0;
+
+        final var units = split(grid, UNIT_TARGET);
+        final var completed = readCheckpoint(board, units.size());
+        // The running total is only for progress reports; the result is summed from the units, checking for overflow
+        final var total = new LongAdder();
+        final var counts = new long[units.size()];
+        final var unitsDone = new AtomicInteger(completed.size());
+        completed.forEach((unit, count) -> {
+            counts[unit] = count;
+            total.add(count);
+        });
+
+        final var start = System.nanoTime();
+        final var reporter = progressListener == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "solution-counter-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (reporter != null) {
+            final var millis = progressInterval.toMillis();
+            reporter.scheduleAtFixedRate(() -> progressListener.accept(new Progress(total.sum(), unitsDone.get(),
+                    units.size(), Duration.ofNanos(System.nanoTime() - start))), millis, millis, TimeUnit.MILLISECONDS);
+        }
+
+        try (var pool = new ForkJoinPool(parallelism);
+             var log = openCheckpoint(board, units.size(), completed.isEmpty())) {
+            final var tasks = new ArrayList<ForkJoinTask<?>>();
+            for (int i = 0; i < units.size(); i++) {
+                if (completed.containsKey(i)) continue;
+                final var index = i;
+                final var unit = units.get(i);
+                tasks.add(pool.submit(() -> {
+                    final var count = countUnit(grid, unit, total);
+                    counts[index] = count;
+                    unitsDone.incrementAndGet();
+                    recordCheckpoint(log, index, count);
+                }));
+            }
+            try {
+                for (var task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException e) {
+                tasks.forEach(task -> task.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Solution count was interrupted.");
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (reporter != null) reporter.shutdownNow();
+        }
+        var solutions = 0L;
+        for (var count : counts) {
+            try {
+                solutions = Math.addExact(solutions, count);
+            } catch (ArithmeticException e) {
+                throw new ArithmeticException("The board has more solutions than fit in a long.");
+            }
+        }
+        return solutions;
+    }
+
+    /**
+     * Expand the search tree level by level until there are at least {@code target} units, or it can't be expanded
+     * any further. Cells are chosen deterministically, so the same board always gives the same units.
+     */
+    private static List<int[]> split(CandidateGrid root, int target) {
+        var units = List.of(new int[0]);
+        while (units.size() < target) {
+            final var next = new ArrayList<int[]>();
+            var expanded = false;
+            for (var prefix : units) {
+                final var grid = apply(root, prefix);
+                final var cell = grid.selectCell(CellHeuristic.MINIMUM_REMAINING_VALUES, new Random(0));
+                if (cell < 0) {
+                    next.add(prefix);
+                    continue;
+                }
+                expanded = true;
+                final var candidates = grid.candidates(cell);
+                for (int value = 1; value <= grid.getSize(); value++) {
+                    if ((candidates & CandidateGrid.bit(value)) == 0) continue;
+                    final var child = Arrays.copyOf(prefix, prefix.length + 2);
+                    child[prefix.length] = cell;
+                    child[prefix.length + 1] = value;
+                    next.add(child);
+                }
+            }
+            if (!expanded) break;
+            units = next;
+        }
+        return units;
+    }
+
+    private static CandidateGrid apply(CandidateGrid root, int[] prefix) {
+        final var grid = root.copy();
+        for (int i = 0; i < prefix.length; i += 2) {
+            grid.place(prefix[i], prefix[i + 1]);
+        }
+        return grid;
+    }
+
+    private static long countUnit(CandidateGrid root, int[] prefix, LongAdder total) {
+        final var counter = new UnitCounter(apply(root, prefix), total);
+        counter.run();
+        total.add(counter.unflushed);
+        SolverMetrics.NODES.add(counter.nodes & FLUSH_MASK);
+        return counter.count;
+    }
+
+    /**
+     * An in-place depth-first count of one unit, flushing its running total to the shared adder every so often so
+     * progress reports stay current.
+     */
+    private static class UnitCounter {
+        private final CandidateGrid grid;
+        private final LongAdder total;
+        private final Random rand = new Random(0);
+        private long nodes = 0;
+        private long count = 0;
+        private long unflushed = 0;
+
+        private UnitCounter(CandidateGrid grid, LongAdder total) {
+            this.grid = grid;
+            this.total = total;
+        }
+
+        private void run() {
+            if ((++nodes & FLUSH_MASK) == 0) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new CancellationException("Solution count was interrupted.");
+                total.add(unflushed);
+                unflushed = 0;
+                SolverMetrics.NODES.add(FLUSH_MASK + 1);
+            }
+
+            final var cell = grid.selectCell(CellHeuristic.MINIMUM_REMAINING_VALUES, rand);
+            if (cell < 0) {
+                count++;
+                unflushed++;
+                return;
+            }
+            final var candidates = grid.candidates(cell);
+            for (int value = 1; value <= grid.getSize(); value++) {
+                if ((candidates & CandidateGrid.bit(value)) == 0) continue;
+                grid.place(cell, value);
+                run();
+                grid.clear(cell);
+            }
+        }
+    }
+
+    /**
+     * Read the finished units from the checkpoint file, if there is one.
+     *
+     * @return the solution count of each finished unit, by unit index
+     */
+    private Map<Integer, Long> readCheckpoint(Board board, int unitCount) {
+        final var completed = new HashMap<Integer, Long>();
+        if (checkpoint == null || !Files.exists(checkpoint)) return completed;
+        try {
+            final var lines = Files.readAllLines(checkpoint);
+            if (lines.isEmpty()) return completed;
+            if (!lines.getFirst().equals(checkpointHeader(board, unitCount)))
+                throw new IllegalStateException(String.format(
+                        "%s is not a checkpoint for this count; delete it or choose another file.", checkpoint));
+            for (var line : lines.subList(1, lines.size())) {
+                final var fields = line.split(" ");
+                // A torn final line from an interrupted write is simply counted again
+                if (fields.length != 2) continue;
+                final var unit = Integer.parseInt(fields[0]);
+                if (unit < 0 || unit >= unitCount) continue;
+                completed.put(unit, Long.parseLong(fields[1]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            // Ignore the rest of a corrupt checkpoint
+        }
+        return completed;
+    }
+
+    private BufferedWriter openCheckpoint(Board board, int unitCount, boolean fresh) throws IOException {
+        if (checkpoint == null) return null;
+        if (!fresh) return Files.newBufferedWriter(checkpoint, StandardOpenOption.APPEND);
+        final var writer = Files.newBufferedWriter(checkpoint);
+        writer.write(checkpointHeader(board, unitCount));
+        writer.newLine();
+        writer.flush();
+        return writer;
+    }
+
+    private static void recordCheckpoint(BufferedWriter log, int unit, long count) {
+        if (log == null) return;
+        synchronized (log) {
+            try {
+                log.write(unit + " " + count);
+                log.newLine();
+                log.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Identifies a count by the board's rules (by their Zobrist key), its givens and the number of units.
+     */
+    private static String checkpointHeader(Board board, int unitCount) {
+        final var sb = new StringBuilder("sudoku-count ")
+                .append(Long.toHexString(board.getModel().getZobristKey())).append(' ');
+        for (var row : board.getGrid()) {
+            for (var value : row) {
+                sb.append(value).append(',');
+            }
+        }
+        return sb.append(' ').append(unitCount).toString();
+    }
+
+    /**
+     * @param solutions  solutions counted so far
+     * @param unitsDone  units finished (including any restored from a checkpoint)
+     * @param unitsTotal units in the whole count
+     * @param elapsed    time since the count (or its resumption) started
+     */
+    public record Progress(long solutions, int unitsDone, int unitsTotal, Duration elapsed) { }
+}
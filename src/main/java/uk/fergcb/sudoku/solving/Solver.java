@@ -2,6 +2,33 @@ package uk.fergcb.sudoku.solving;
 
 import uk.fergcb.sudoku.Board;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface Solver {
     SolveResult solve(Board board);
+
+    /**
+     * Solve many boards. By default they are solved one at a time; see {@link BatchSolver} for a solver which spreads
+     * a batch across cores.
+     *
+     * @return a result for each board, in the same order
+     */
+    default List<SolveResult> solveAll(Iterable<Board> boards) {
+        final var results = new ArrayList<SolveResult>();
+        for (var board : boards) {
+            results.add(solve(board));
+        }
+        return results;
+    }
+
+    /**
+     * Solve a stream of boards lazily, as the results are consumed.
+     *
+     * @return a result for each board, in the same order
+     */
+    default Stream<SolveResult> solveAll(Stream<Board> boards) {
+        return boards.sequential().map(this::solve);
+    }
 }
@@ -0,0 +1,99 @@
+package uk.fergcb.sudoku.solving;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-free cache of search outcomes, keyed by the Zobrist hash of the (sub)problem they were found for.
+ * <p>
+ * The cache is a fixed-size direct-mapped table: each hash maps to one slot, and a newer entry simply overwrites
+ * whatever was there. Each entry packs the high bits of its hash and its outcome into a single {@code long}, so
+ * entries are read and written atomically without locks and can never be torn between threads. As with any
+ * transposition table, two different grids with the same 62 high hash bits would share an entry; with 64-bit Zobrist
+ * keys this is vanishingly unlikely.
+ */
+public class TranspositionCache {
+
+    /**
+     * What a search of a subproblem found.
+     */
+    public enum Outcome {
+        DEAD_END,
+        UNIQUE,
+        MULTIPLE;
+
+        private static final Outcome[] VALUES = values();
+    }
+
+    private static final long OUTCOME_MASK = 0b11;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the maximum number of entries, rounded up to a power of two
+     */
+    public TranspositionCache(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Cache capacity must be between 1 and 2^30.");
+        final var slots = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.table = new AtomicLongArray(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * @param hash the Zobrist hash of the subproblem
+     * @return the cached outcome, or null if it isn't cached
+     */
+    public Outcome lookup(long hash) {
+        final var entry = table.get(index(hash));
+        if (entry != 0 && (entry & ~OUTCOME_MASK) == (hash & ~OUTCOME_MASK)) {
+            hits.increment();
+            return Outcome.VALUES[(int) (entry & OUTCOME_MASK) - 1];
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @param hash    the Zobrist hash of the subproblem
+     * @param outcome what a complete search of the subproblem found
+     */
+    public void store(long hash, Outcome outcome) {
+        table.set(index(hash), (hash & ~OUTCOME_MASK) | (outcome.ordinal() + 1));
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, 0);
+        }
+    }
+
+    public int getCapacity() {
+        return table.length();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups which found an entry, or 0 if there have been none
+     */
+    public double getHitRatio() {
+        final var h = hits.sum();
+        final var total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private int index(long hash) {
+        // The low bits hold the outcome, so spread the upper bits over the index
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,127 @@
+package uk.fergcb.sudoku.solving;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.metrics.SolverMetrics;
+import uk.fergcb.sudoku.solving.TranspositionCache.Outcome;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Decides whether a board has no solution, exactly one, or several, stopping as soon as a second solution is found.
+ * <p>
+ * Every subtree of the search is a board in its own right, so outcomes are recorded in a {@link TranspositionCache}
+ * keyed by Zobrist hash, mixed with a key for the board's rules so that one cache can serve boards under different
+ * rules. A generator which digs cells out of a grid one at a time checks a long run of nearly
+ * identical boards, whose searches mostly revisit the same subtrees; with a shared cache those are answered without
+ * searching. Only subtrees which took a meaningful amount of work are cached, so that trivial ones near the leaves
+ * don't evict them.
+ * <p>
+ * A checker may be shared between threads; the cache is concurrent and each check searches its own copy of the grid.
+ */
+public class UniquenessChecker {
+
+    private static final int DEFAULT_CACHE_CAPACITY = 1 << 20;
+    private static final int MIN_NODES_TO_CACHE = 32;
+    private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
+    private final TranspositionCache cache;
+
+    public UniquenessChecker() {
+        this(new TranspositionCache(DEFAULT_CACHE_CAPACITY));
+    }
+
+    public UniquenessChecker(TranspositionCache cache) {
+        this.cache = cache;
+    }
+
+    public TranspositionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param board the board to check
+     * @return true if the board has exactly one solution
+     */
+    public boolean isUnique(Board board) {
+        return check(board) == Outcome.UNIQUE;
+    }
+
+    /**
+     * @param board the board to check
+     * @return whether the board has no solution, one, or more than one
+     * @throws CancellationException if the calling thread is interrupted during the check
+     */
+    public Outcome check(Board board) {
+        final var grid = CandidateGrid.of(board);
+        if (!grid.isConsistent()) return Outcome.DEAD_END;
+        return search(grid);
+    }
+
+    /**
+     * @param grid the grid to check (left unmodified)
+     * @return whether the grid has no solution, one, or more than one
+     * @throws CancellationException if the calling thread is interrupted during the check
+     */
+    public Outcome check(CandidateGrid grid) {
+        if (!grid.isConsistent()) return Outcome.DEAD_END;
+        return search(grid.copy());
+    }
+
+    /**
+     * @param grid a grid the search may modify
+     */
+    private Outcome search(CandidateGrid grid) {
+        final var search = new Search(grid);
+        try {
+            return search.run();
+        } finally {
+            SolverMetrics.NODES.add(search.nodes);
+        }
+    }
+
+    /**
+     * An in-place depth-first search of a single grid.
+     */
+    private class Search {
+        private final CandidateGrid grid;
+        private final Random rand = new Random(0);
+        private final long modelKey;
+        private long nodes = 0;
+
+        private Search(CandidateGrid grid) {
+            this.grid = grid;
+            this.modelKey = grid.getModel().getZobristKey();
+        }
+
+        private Outcome run() {
+            if ((++nodes & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted())
+                throw new CancellationException("Uniqueness check was interrupted.");
+
+            final var cell = grid.selectCell(CellHeuristic.MINIMUM_REMAINING_VALUES, rand);
+            if (cell < 0) return Outcome.UNIQUE;
+
+            final var hash = grid.getHash() ^ modelKey;
+            final var cached = cache.lookup(hash);
+            if (cached != null) return cached;
+
+            final var nodesBefore = nodes;
+            final var candidates = grid.candidates(cell);
+            var solutions = 0;
+            for (int value = 1; value <= grid.getSize() && solutions < 2; value++) {
+                if ((candidates & CandidateGrid.bit(value)) == 0) continue;
+                grid.place(cell, value);
+                final var outcome = run();
+                grid.clear(cell);
+                if (outcome == Outcome.UNIQUE) solutions++;
+                else if (outcome == Outcome.MULTIPLE) solutions = 2;
+            }
+
+            final var outcome = solutions == 0 ? Outcome.DEAD_END
+                    : solutions == 1 ? Outcome.UNIQUE
+                    : Outcome.MULTIPLE;
+            if (nodes - nodesBefore >= MIN_NODES_TO_CACHE) cache.store(hash, outcome);
+            return outcome;
+        }
+    }
+}
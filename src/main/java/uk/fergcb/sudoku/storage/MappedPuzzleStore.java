@@ -0,0 +1,172 @@
+package uk.fergcb.sudoku.storage;
+
+import uk.fergcb.sudoku.generation.Puzzle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk inventory of puzzles and their solutions, stored in memory-mapped files.
+ * <p>
+ * Puzzles are sharded by size into files of fixed-width records (see {@link PuzzleShard}), so any puzzle can be
+ * read in O(1) from its size and ordinal. Each shard keeps secondary indexes by clue count and by difficulty, so
+ * filtered lookups and scans only touch the records they need, and nothing is held on the heap beyond the puzzles
+ * actually returned.
+ */
+public class MappedPuzzleStore implements AutoCloseable {
+
+    private static final Pattern SHARD_PATTERN = Pattern.compile("(\\d+)x\\1\\.dat");
+
+    private final Path dir;
+    private final Map<Integer, PuzzleShard> shards = new ConcurrentHashMap<>();
+
+    private MappedPuzzleStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Open the store in a directory, creating it if it does not exist.
+     *
+     * @param dir the store's directory
+     * @return the opened store
+     */
+    public static MappedPuzzleStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        final var store = new MappedPuzzleStore(dir);
+        try (var files = Files.list(dir)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                final var matcher = SHARD_PATTERN.matcher(file.getFileName().toString());
+                if (!matcher.matches()) continue;
+                final var size = Integer.parseInt(matcher.group(1));
+                store.shards.put(size, PuzzleShard.open(dir, size));
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Add a puzzle with no difficulty rating.
+     *
+     * @param puzzle the puzzle and its solution
+     * @return the puzzle's ordinal within the shard for its size
+     */
+    public long append(Puzzle puzzle) throws IOException {
+        return append(puzzle, 0);
+    }
+
+    /**
+     * Add a puzzle.
+     *
+     * @param puzzle     the puzzle and its solution
+     * @param difficulty the puzzle's difficulty rating (0-255)
+     * @return the puzzle's ordinal within the shard for its size
+     */
+    public long append(Puzzle puzzle, int difficulty) throws IOException {
+        if (difficulty < 0 || difficulty > 255)
+            throw new IllegalArgumentException("Difficulty must satisfy 0 <= difficulty <= 255.");
+        return shard(puzzle.puzzle().getSize()).append(puzzle, difficulty);
+    }
+
+    /**
+     * @return the sizes of puzzle held in the store
+     */
+    public Set<Integer> getSizes() {
+        return Set.copyOf(shards.keySet());
+    }
+
+    /**
+     * @param size the side length of the puzzles to count
+     * @return the number of puzzles of that size
+     */
+    public long count(int size) {
+        final var shard = shards.get(size);
+        return shard == null ? 0 : shard.count();
+    }
+
+    /**
+     * @param size  the side length of the puzzles to count
+     * @param query the clue count and/or difficulty to match
+     * @return the number of matching puzzles of that size
+     */
+    public long count(int size, PuzzleQuery query) {
+        final var shard = shards.get(size);
+        return shard == null ? 0 : shard.count(query);
+    }
+
+    /**
+     * Read a puzzle by its ordinal.
+     *
+     * @param size    the side length of the puzzle
+     * @param ordinal the puzzle's ordinal, as returned by {@link #append(Puzzle, int)}
+     * @return the puzzle
+     * @throws IndexOutOfBoundsException if there is no such puzzle
+     */
+    public StoredPuzzle get(int size, long ordinal) {
+        final var shard = shards.get(size);
+        if (shard == null)
+            throw new IndexOutOfBoundsException(String.format("No %s puzzles in store.", PuzzleShard.prefix(size)));
+        return shard.get(ordinal);
+    }
+
+    /**
+     * Pick a random puzzle matching a query, e.g. "a random 9x9 with 25 clues".
+     *
+     * @param size  the side length of the puzzle
+     * @param query the clue count and/or difficulty to match
+     * @return a matching puzzle, or empty if there are none
+     */
+    public Optional<StoredPuzzle> random(int size, PuzzleQuery query) {
+        final var shard = shards.get(size);
+        if (shard == null) return Optional.empty();
+        return shard.random(query, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Lazily stream every puzzle matching a query, in insertion order.
+     * Only the matching puzzles are decoded.
+     *
+     * @param size  the side length of the puzzles
+     * @param query the clue count and/or difficulty to match
+     * @return the matching puzzles
+     */
+    public Stream<StoredPuzzle> scan(int size, PuzzleQuery query) {
+        final var shard = shards.get(size);
+        if (shard == null) return Stream.empty();
+        return shard.ordinals(query).mapToObj(shard::get);
+    }
+
+    /**
+     * Flush all written puzzles to the storage device.
+     */
+    public void force() {
+        shards.values().forEach(PuzzleShard::force);
+    }
+
+    private PuzzleShard shard(int size) throws IOException {
+        try {
+            return shards.computeIfAbsent(size, s -> {
+                try {
+                    return PuzzleShard.open(dir, s);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var shard : shards.values()) shard.close();
+    }
+}
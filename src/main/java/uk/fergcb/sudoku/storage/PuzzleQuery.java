@@ -0,0 +1,29 @@
+package uk.fergcb.sudoku.storage;
+
+/**
+ * Filter for looking puzzles up in a {@link MappedPuzzleStore}.
+ *
+ * @param clues      the exact number of clues to match, or {@link #ANY}
+ * @param difficulty the exact difficulty rating to match, or {@link #ANY}
+ */
+public record PuzzleQuery(int clues, int difficulty) {
+
+    public static final int ANY = -1;
+
+    public static PuzzleQuery any() {
+        return new PuzzleQuery(ANY, ANY);
+    }
+
+    public PuzzleQuery withClues(int clues) {
+        return new PuzzleQuery(clues, difficulty);
+    }
+
+    public PuzzleQuery withDifficulty(int difficulty) {
+        return new PuzzleQuery(clues, difficulty);
+    }
+
+    public boolean matches(int clues, int difficulty) {
+        return (this.clues == ANY || this.clues == clues)
+                && (this.difficulty == ANY || this.difficulty == difficulty);
+    }
+}
@@ -0,0 +1,257 @@
+package uk.fergcb.sudoku.storage;
+
+import uk.fergcb.sudoku.Board;
+import uk.fergcb.sudoku.generation.Puzzle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+/**
+ * All the puzzles of one size in a {@link MappedPuzzleStore}, plus their secondary indexes.
+ * <p>
+ * The data file holds one fixed-width record per puzzle:
+ * <pre>
+ *   clues (2 bytes) | difficulty (1 byte) | reserved (1 byte) | puzzle cells (size² bytes) | solution cells (size² bytes)
+ * </pre>
+ * Each index file lists, in insertion order, the ordinals of the puzzles with a particular clue count or difficulty.
+ */
+final class PuzzleShard implements AutoCloseable {
+
+    private static final int RECORDS_PER_SEGMENT = 1 << 16;
+    private static final int ENTRIES_PER_INDEX_SEGMENT = 1 << 20;
+    private static final int RECORD_HEADER_BYTES = 4;
+    private static final int DIFFICULTY_OFFSET = 2;
+
+    private final Path dir;
+    private final int size;
+    private final int cells;
+    private final SegmentedFile data;
+    private final Map<Integer, SegmentedFile> cluesIndex = new ConcurrentHashMap<>();
+    private final Map<Integer, SegmentedFile> difficultyIndex = new ConcurrentHashMap<>();
+
+    private PuzzleShard(Path dir, int size) throws IOException {
+        this.dir = dir;
+        this.size = size;
+        this.cells = size * size;
+        this.data = new SegmentedFile(dir.resolve(prefix(size) + ".dat"),
+                RECORD_HEADER_BYTES + 2 * cells, RECORDS_PER_SEGMENT);
+    }
+
+    static PuzzleShard open(Path dir, int size) throws IOException {
+        final var shard = new PuzzleShard(dir, size);
+        final var indexPattern = Pattern.compile(Pattern.quote(prefix(size)) + "\\.(clues|difficulty)-(\\d+)\\.idx");
+        try (var files = Files.list(dir)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                final var matcher = indexPattern.matcher(file.getFileName().toString());
+                if (!matcher.matches()) continue;
+                final var key = Integer.parseInt(matcher.group(2));
+                final var indexes = matcher.group(1).equals("clues") ? shard.cluesIndex : shard.difficultyIndex;
+                indexes.put(key, new SegmentedFile(file, Integer.BYTES, ENTRIES_PER_INDEX_SEGMENT));
+            }
+        }
+        shard.repairLastRecord();
+        return shard;
+    }
+
+    /**
+     * A record is committed before its index entries, so a crash in between leaves the last record missing from one
+     * or both of its indexes. Add back any entries it is missing.
+     */
+    private void repairLastRecord() throws IOException {
+        if (count() == 0) return;
+        final var last = count() - 1;
+        final var byClues = index(cluesIndex, "clues", clues(last));
+        final var byDifficulty = index(difficultyIndex, "difficulty", difficulty(last));
+        for (var index : List.of(byClues, byDifficulty)) {
+            if (index.count() == 0 || entry(index, index.count() - 1) != last)
+                index.append((segment, offset) -> segment.putInt(offset, (int) last));
+        }
+    }
+
+    static String prefix(int size) {
+        return size + "x" + size;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    long count() {
+        return data.count();
+    }
+
+    synchronized long append(Puzzle puzzle, int difficulty) throws IOException {
+        final var puzzleGrid = puzzle.puzzle().getGrid();
+        final var solutionGrid = puzzle.solution().getGrid();
+        var clueCount = 0;
+        for (var row : puzzleGrid) {
+            for (var value : row) {
+                if (value != 0) clueCount++;
+            }
+        }
+        final var clues = clueCount;
+
+        // Everything which can fail happens before anything is written, so a failed append leaves no record behind
+        // without its index entries. The record is committed first, so readers never find an entry without its
+        // record; if the process dies before the entries are written, open() adds them back.
+        if (data.count() > Integer.MAX_VALUE)
+            throw new IllegalStateException(String.format("Shard %s is full.", prefix(size)));
+        final var byClues = index(cluesIndex, "clues", clues);
+        final var byDifficulty = index(difficultyIndex, "difficulty", difficulty);
+        try {
+            data.prepareAppend();
+            byClues.prepareAppend();
+            byDifficulty.prepareAppend();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        final var ordinal = data.append((segment, offset) -> {
+            segment.putShort(offset, (short) clues);
+            segment.put(offset + DIFFICULTY_OFFSET, (byte) difficulty);
+            writeGrid(segment, offset + RECORD_HEADER_BYTES, puzzleGrid);
+            writeGrid(segment, offset + RECORD_HEADER_BYTES + cells, solutionGrid);
+        });
+        byClues.append((segment, offset) -> segment.putInt(offset, (int) ordinal));
+        byDifficulty.append((segment, offset) -> segment.putInt(offset, (int) ordinal));
+        return ordinal;
+    }
+
+    private SegmentedFile index(Map<Integer, SegmentedFile> indexes, String kind, int key) throws IOException {
+        final var existing = indexes.get(key);
+        if (existing != null) return existing;
+        final var created = new SegmentedFile(dir.resolve(String.format("%s.%s-%d.idx", prefix(size), kind, key)),
+                Integer.BYTES, ENTRIES_PER_INDEX_SEGMENT);
+        indexes.put(key, created);
+        return created;
+    }
+
+    int clues(long ordinal) {
+        return data.segmentFor(ordinal).getShort(data.offsetOf(ordinal));
+    }
+
+    int difficulty(long ordinal) {
+        return Byte.toUnsignedInt(data.segmentFor(ordinal).get(data.offsetOf(ordinal) + DIFFICULTY_OFFSET));
+    }
+
+    StoredPuzzle get(long ordinal) {
+        if (ordinal < 0 || ordinal >= count())
+            throw new IndexOutOfBoundsException(String.format("No %s puzzle with ordinal %d.", prefix(size), ordinal));
+        final var segment = data.segmentFor(ordinal);
+        final var offset = data.offsetOf(ordinal);
+        final var puzzle = Board.from(readGrid(segment, offset + RECORD_HEADER_BYTES));
+        final var solution = Board.from(readGrid(segment, offset + RECORD_HEADER_BYTES + cells));
+        return new StoredPuzzle(ordinal, clues(ordinal), difficulty(ordinal), new Puzzle(puzzle, solution));
+    }
+
+    /**
+     * Count the puzzles matching a query. Single-key queries are answered from the index in O(1).
+     */
+    long count(PuzzleQuery query) {
+        if (query.clues() == PuzzleQuery.ANY && query.difficulty() == PuzzleQuery.ANY) return count();
+        if (query.clues() == PuzzleQuery.ANY) return entries(difficultyIndex.get(query.difficulty()));
+        if (query.difficulty() == PuzzleQuery.ANY) return entries(cluesIndex.get(query.clues()));
+        return ordinals(query).count();
+    }
+
+    /**
+     * Find the ordinals of the puzzles matching a query, in insertion order.
+     * <p>
+     * Uses the smaller of the relevant indexes and checks any remaining condition against the record header, so the
+     * puzzle cells themselves are never read.
+     */
+    LongStream ordinals(PuzzleQuery query) {
+        final var index = smallestIndex(query);
+        if (index == null) {
+            if (query.clues() != PuzzleQuery.ANY || query.difficulty() != PuzzleQuery.ANY) return LongStream.empty();
+            return LongStream.range(0, count());
+        }
+        return LongStream.range(0, index.count())
+                .map(i -> entry(index, i))
+                .filter(ordinal -> query.matches(clues(ordinal), difficulty(ordinal)));
+    }
+
+    /**
+     * Pick a puzzle uniformly at random from those matching a query.
+     * <p>
+     * Single-key queries pick a random entry of their index in O(1). Queries on both keys reservoir-sample the
+     * matching ordinals, in one pass over the smaller index.
+     */
+    Optional<StoredPuzzle> random(PuzzleQuery query, Random rand) {
+        final var index = smallestIndex(query);
+        if (index == null) {
+            if (query.clues() != PuzzleQuery.ANY || query.difficulty() != PuzzleQuery.ANY || count() == 0)
+                return Optional.empty();
+            return Optional.of(get(rand.nextLong(count())));
+        }
+
+        if (query.clues() == PuzzleQuery.ANY || query.difficulty() == PuzzleQuery.ANY) {
+            final var entries = index.count();
+            return entries == 0 ? Optional.empty() : Optional.of(get(entry(index, rand.nextLong(entries))));
+        }
+        var chosen = -1L;
+        var seen = 0L;
+        for (var matches = ordinals(query).iterator(); matches.hasNext(); ) {
+            final var ordinal = matches.nextLong();
+            if (rand.nextLong(++seen) == 0) chosen = ordinal;
+        }
+        return chosen < 0 ? Optional.empty() : Optional.of(get(chosen));
+    }
+
+    private SegmentedFile smallestIndex(PuzzleQuery query) {
+        final var byClues = query.clues() == PuzzleQuery.ANY ? null : cluesIndex.get(query.clues());
+        final var byDifficulty = query.difficulty() == PuzzleQuery.ANY ? null : difficultyIndex.get(query.difficulty());
+        if (byClues == null) return byDifficulty;
+        if (byDifficulty == null) return byClues;
+        return byClues.count() <= byDifficulty.count() ? byClues : byDifficulty;
+    }
+
+    private static long entries(SegmentedFile index) {
+        return index == null ? 0 : index.count();
+    }
+
+    private static long entry(SegmentedFile index, long i) {
+        return index.segmentFor(i).getInt(index.offsetOf(i));
+    }
+
+    private void writeGrid(ByteBuffer segment, int offset, int[][] grid) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                segment.put(offset + r * size + c, (byte) grid[r][c]);
+            }
+        }
+    }
+
+    private int[][] readGrid(ByteBuffer segment, int offset) {
+        final var grid = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                grid[r][c] = segment.get(offset + r * size + c);
+            }
+        }
+        return grid;
+    }
+
+    void force() {
+        data.force();
+        cluesIndex.values().forEach(SegmentedFile::force);
+        difficultyIndex.values().forEach(SegmentedFile::force);
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+        for (var index : cluesIndex.values()) index.close();
+        for (var index : difficultyIndex.values()) index.close();
+    }
+}
@@ -0,0 +1,147 @@
+package uk.fergcb.sudoku.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file of fixed-width records, memory-mapped in fixed-size segments.
+ * <p>
+ * A single mapping is limited to 2GB, so the file is mapped lazily one segment at a time as records are read or
+ * appended. The number of committed records is kept in a small header at the start of the file; anything beyond it
+ * (e.g. the unused tail of the last segment) is ignored.
+ */
+final class SegmentedFile implements AutoCloseable {
+
+    private static final int MAGIC = 0x5355444B; // "SUDK"
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+
+    private final FileChannel channel;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long count;
+
+    SegmentedFile(Path path, int recordBytes, int recordsPerSegment) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recordBytes = recordBytes;
+        this.recordsPerSegment = recordsPerSegment;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC);
+            header.putInt(RECORD_BYTES_OFFSET, recordBytes);
+            header.putLong(COUNT_OFFSET, 0);
+        } else if (header.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException(String.format("%s is not a puzzle store file.", path));
+        } else if (header.getInt(RECORD_BYTES_OFFSET) != recordBytes) {
+            channel.close();
+            throw new IOException(String.format("%s has records of %d bytes, expected %d.",
+                    path, header.getInt(RECORD_BYTES_OFFSET), recordBytes));
+        }
+        this.count = header.getLong(COUNT_OFFSET);
+    }
+
+    /**
+     * @return the number of committed records
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * Map the segment the next record will be written to, so that a following {@link #append(RecordWriter)} cannot
+     * fail part way through.
+     *
+     * @throws UncheckedIOException if the segment could not be mapped
+     */
+    synchronized void prepareAppend() {
+        segmentFor(count);
+    }
+
+    /**
+     * Write a new record at the end of the file and commit it.
+     *
+     * @param writer writes the record's bytes into the mapped segment
+     * @return the ordinal of the new record
+     */
+    synchronized long append(RecordWriter writer) {
+        final var ordinal = count;
+        writer.write(segmentFor(ordinal), offsetOf(ordinal));
+        count = ordinal + 1;
+        header.putLong(COUNT_OFFSET, count);
+        return ordinal;
+    }
+
+    /**
+     * Get the mapped segment containing a record, mapping it first if necessary.
+     * Use with {@link #offsetOf(long)} to locate the record within the segment.
+     *
+     * @param ordinal the record's ordinal
+     * @return the segment buffer
+     * @throws UncheckedIOException if the segment could not be mapped
+     */
+    ByteBuffer segmentFor(long ordinal) {
+        final var index = (int) (ordinal / recordsPerSegment);
+        final var mapped = segments;
+        if (index < mapped.length && mapped[index] != null) return mapped[index];
+        return mapSegment(index);
+    }
+
+    /**
+     * @param ordinal the record's ordinal
+     * @return the byte offset of the record within its segment
+     */
+    int offsetOf(long ordinal) {
+        return (int) (ordinal % recordsPerSegment) * recordBytes;
+    }
+
+    private synchronized ByteBuffer mapSegment(int index) {
+        var mapped = segments;
+        if (index >= mapped.length) {
+            mapped = Arrays.copyOf(mapped, index + 1);
+        } else if (mapped[index] != null) {
+            return mapped[index];
+        }
+        final var segmentBytes = (long) recordsPerSegment * recordBytes;
+        try {
+            mapped[index] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_BYTES + index * segmentBytes, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments = mapped;
+        return mapped[index];
+    }
+
+    /**
+     * Flush all mapped changes to the storage device.
+     */
+    synchronized void force() {
+        header.force();
+        for (var segment : segments) {
+            if (segment != null) segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    @FunctionalInterface
+    interface RecordWriter {
+        void write(ByteBuffer segment, int offset);
+    }
+}
@@ -0,0 +1,13 @@
+package uk.fergcb.sudoku.storage;
+
+import uk.fergcb.sudoku.generation.Puzzle;
+
+/**
+ * A puzzle read back from a {@link MappedPuzzleStore}.
+ *
+ * @param ordinal    the puzzle's position within the store's shard for its size
+ * @param clues      the number of filled cells in the puzzle
+ * @param difficulty the difficulty rating it was stored with
+ * @param puzzle     the puzzle and its solution
+ */
+public record StoredPuzzle(long ordinal, int clues, int difficulty, Puzzle puzzle) { }
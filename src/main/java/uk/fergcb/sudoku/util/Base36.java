@@ -15,4 +15,12 @@ public final class Base36 {
 
         return digits[n];
     }
+
+    /**
+     * @param digit a base 36 digit (case-insensitive)
+     * @return the digit's value, or -1 if it isn't a base 36 digit
+     */
+    public static int fromDigit(char digit) {
+        return Character.digit(digit, 36);
+    }
 }
@@ -0,0 +1,67 @@
+package uk.fergcb.sudoku.util;
+
+/**
+ * Zobrist hashing for sudoku grids.
+ * <p>
+ * Every (cell, value) pair has a fixed pseudo-random 64-bit key, and a grid's hash is the XOR of the keys of its
+ * filled cells. Because XOR is its own inverse, changing a single cell updates the hash in O(1) - XOR out the old
+ * value's key and XOR in the new one. Empty cells contribute nothing.
+ * <p>
+ * Keys are derived on the fly with a SplitMix64 finaliser rather than stored in tables, so they are identical across
+ * runs and JVMs and cost nothing for sizes that are never used.
+ */
+public final class Zobrist {
+
+    private Zobrist() {
+        throw new IllegalStateException("Zobrist is a static utility class and cannot be instantiated");
+    }
+
+    /**
+     * @param size  the side length of the grid
+     * @param cell  the cell index ({@code row * size + col})
+     * @param value the value in the cell
+     * @return the key for the value in the cell, or 0 for an empty cell
+     */
+    public static long key(int size, int cell, int value) {
+        if (value == 0) return 0;
+        return mix((long) size << 48 ^ (long) cell << 16 ^ value);
+    }
+
+    /**
+     * @param z any value
+     * @return a well-mixed 64-bit key derived from it (the SplitMix64 finaliser)
+     */
+    public static long mix(long z) {
+        z *= 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param grid a square grid of values
+     * @return the hash of the whole grid
+     */
+    public static long hash(int[][] grid) {
+        final var size = grid.length;
+        var hash = 0L;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                hash ^= key(size, r * size + c, grid[r][c]);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @param hash     the hash of a grid
+     * @param size     the side length of the grid
+     * @param cell     the cell index of the change
+     * @param oldValue the value previously in the cell (0 if empty)
+     * @param newValue the value now in the cell (0 if empty)
+     * @return the hash of the grid after the change
+     */
+    public static long update(long hash, int size, int cell, int oldValue, int newValue) {
+        return hash ^ key(size, cell, oldValue) ^ key(size, cell, newValue);
+    }
+}
@@ -4,6 +4,7 @@ import uk.fergcb.sudoku.Board;
 import uk.fergcb.sudoku.util.Position;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -13,19 +14,40 @@ import java.util.concurrent.Executors;
 
 public class ThreadPoolValidator implements Validator {
 
-    private static final ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    /**
+     * Holds the shared pool, so that it is only created (by class initialisation) the first time a board is
+     * validated, rather than whenever this class happens to be loaded.
+     */
+    private static final class PoolHolder {
+        private static final ExecutorService pool = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                runnable -> {
+                    final var thread = new Thread(runnable, "validator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
 
+    /**
+     * Check every region of the board's {@link uk.fergcb.sudoku.constraints.ConstraintModel}, with one task per
+     * kind of region (rows, columns, boxes, and any variant regions).
+     */
     @Override
     public ValidationResult validate(Board board) {
         var result = ValidationResult.valid();
+        final var model = board.getModel();
+        final var unitsByType = new EnumMap<ValidationType, List<Integer>>(ValidationType.class);
+        for (int unit = 0; unit < model.getUnitCount(); unit++) {
+            unitsByType.computeIfAbsent(model.getUnitType(unit), type -> new ArrayList<>()).add(unit);
+        }
 
-        try (var pool = Executors.newFixedThreadPool(3)) {
-            final var cs = new ExecutorCompletionService<ValidationResult>(pool);
-            cs.submit(() -> validateRows(board));
-            cs.submit(() -> validateCols(board));
-            cs.submit(() -> validateBoxes(board));
+        try {
+            final var cs = new ExecutorCompletionService<ValidationResult>(PoolHolder.pool);
+            for (var units : unitsByType.values()) {
+                cs.submit(() -> validateUnits(board, units));
+            }
 
-            for (int i = 0; i < 3; i++) {
+            for (int i = 0; i < unitsByType.size(); i++) {
                 result = result.merge(cs.take().get());
             }
         } catch (InterruptedException | ExecutionException e) {
@@ -35,66 +57,39 @@ public class ThreadPoolValidator implements Validator {
         return result;
     }
 
-    private ValidationResult validateRows(Board board) {
+    private ValidationResult validateUnits(Board board, List<Integer> units) {
         final var errors = new ArrayList<ValidationError>();
+        final var model = board.getModel();
+        final var size = board.getSize();
+        final var unitOffsets = model.getUnitOffsets();
+        final var unitCells = model.getUnitCells();
 
-        for (int r = 0; r < board.getSize(); r++) {
+        for (var unit : units) {
+            final var type = model.getUnitType(unit);
             final var seen = new HashMap<Integer, Position>();
-            for (int c = 0; c < board.getSize(); c++) {
-                final var value = board.getGrid()[r][c];
-                if (value == 0) continue;
-                final var currentPos = new Position(r, c);
-                if (seen.containsKey(value))
-                    errors.add(new ValidationError(ValidationType.ROW, List.of(seen.get(value), currentPos)));
-                seen.put(value, currentPos);
-            }
-        }
-
-        if (!errors.isEmpty()) return ValidationResult.invalid(errors);
-        return ValidationResult.valid();
-    }
-
-    private ValidationResult validateCols(Board board) {
-        final var errors = new ArrayList<ValidationError>();
-
-        for (int c = 0; c < board.getSize(); c++) {
-            final var seen = new HashMap<Integer, Position>();
-            for (int r = 0; r < board.getSize(); r++) {
-                final var value = board.getGrid()[r][c];
-                if (value == 0) continue;
-                final var currentPos = new Position(r, c);
+            var total = 0;
+            var full = true;
+            for (int i = unitOffsets[unit]; i < unitOffsets[unit + 1]; i++) {
+                final var currentPos = new Position(unitCells[i] / size, unitCells[i] % size);
+                final var value = board.getGrid()[currentPos.row()][currentPos.col()];
+                if (value == 0) {
+                    full = false;
+                    continue;
+                }
+                total += value;
                 if (seen.containsKey(value))
-                    errors.add(new ValidationError(ValidationType.COL, List.of(seen.get(value), currentPos)));
+                    errors.add(new ValidationError(type, List.of(seen.get(value), currentPos)));
                 seen.put(value, currentPos);
             }
-        }
-
-        if (!errors.isEmpty()) return ValidationResult.invalid(errors);
-        return ValidationResult.valid();
-    }
-
-    private ValidationResult validateBoxes(Board board) {
-        final var errors = new ArrayList<ValidationError>();
-        final var boxSize = board.getBoxSize();
 
-        // Iterate over the boxes
-        for (int br = 0; br < boxSize; br++) {
-            for (int bc = 0; bc < boxSize; bc++) {
-                // Find the origin of the box
-                final var ro = br * boxSize;
-                final var co = bc * boxSize;
-                // Iterate over each cell in the box
-                final var seen = new HashMap<Integer, Position>();
-                for (int r = ro; r < ro + boxSize; r++) {
-                    for (int c = co; c < co + boxSize; c++) {
-                        final var value = board.getGrid()[r][c];
-                        if (value == 0) continue;
-                        final var currentPos = new Position(r, c);
-                        if (seen.containsKey(value))
-                            errors.add(new ValidationError(ValidationType.BOX, List.of(seen.get(value), currentPos)));
-                        seen.put(value, currentPos);
-                    }
+            // A cage is only wrong once it's full (or already over its sum)
+            final var sum = model.getUnitSum(unit);
+            if (sum != 0 && (total > sum || (full && total != sum))) {
+                final var culprits = new ArrayList<Position>();
+                for (int i = unitOffsets[unit]; i < unitOffsets[unit + 1]; i++) {
+                    culprits.add(new Position(unitCells[i] / size, unitCells[i] % size));
                 }
+                errors.add(new ValidationError(type, culprits));
             }
         }
 
@@ -1,3 +1,3 @@
 package uk.fergcb.sudoku.validation;
 
-public enum ValidationType {ROW, COL, BOX}
+public enum ValidationType {ROW, COL, BOX, DIAGONAL, JIGSAW, CAGE}